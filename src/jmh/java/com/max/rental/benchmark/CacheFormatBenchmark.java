@@ -0,0 +1,100 @@
+package com.max.rental.benchmark;
+
+import com.max.rental.cache.BinaryCacheSerializer;
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.listing.ListingSummaryDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бинарный формат значений кэша против прежнего JSON на списках ListingSummaryDto -
+ * самых крупных значениях в Redis. Сериализаторы собираются так же, как в
+ * {@link RedisCacheConfig}. Размеры обоих форматов печатаются при подготовке,
+ * время записи и чтения - результаты бенчмарков.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheFormatBenchmark {
+
+    private static final String[] CITIES = {"Москва", "Санкт-Петербург", "Казань", "Екатеринбург", "Новосибирск"};
+    private static final String[] TYPES = {"APARTMENT", "HOUSE", "ROOM"};
+    private static final String DESCRIPTION = "Светлая квартира в пяти минутах от метро, свежий ремонт, "
+            + "вся техника. Рядом парк, школа и магазины.";
+
+    @Param({"12", "50", "200"})
+    public int listSize;
+
+    @Param({"1024"})
+    public int compressionThreshold;
+
+    private BinaryCacheSerializer binary;
+    private GenericJackson2JsonRedisSerializer json;
+    private List<ListingSummaryDto> value;
+    private byte[] binaryBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        binary = RedisCacheConfig.valueSerializer(compressionThreshold, new SimpleMeterRegistry());
+        json = RedisCacheConfig.jsonValueSerializer();
+
+        value = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            value.add(new ListingSummaryDto(
+                    1000L + i,
+                    "Квартира у метро №" + i,
+                    // Описание в сводке обрезано до 100 символов (SUMMARY_SELECT)
+                    DESCRIPTION.substring(0, 100 - 8) + " №" + String.format("%05d", i),
+                    new BigDecimal(1500 + (i * 250) % 20000).setScale(2),
+                    CITIES[i % CITIES.length],
+                    "Район " + (i % 7),
+                    TYPES[i % TYPES.length],
+                    (i % 10 == 0) ? 0.0 : 3.5 + (i % 15) / 10.0));
+        }
+
+        binaryBytes = binary.serialize(value);
+        jsonBytes = json.serialize(value);
+        System.out.printf("%n[listSize=%d] binary: %d bytes, json: %d bytes%n",
+                listSize, binaryBytes.length, jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binary.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public Object decodeBinary() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return json.deserialize(jsonBytes);
+    }
+}
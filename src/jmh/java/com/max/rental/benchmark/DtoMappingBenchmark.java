@@ -0,0 +1,125 @@
+package com.max.rental.benchmark;
+
+import com.max.rental.dto.listing.ListingDetailsDto;
+import com.max.rental.dto.review.ReviewDto;
+import com.max.rental.mapping.ListingDetailsMapper;
+import com.max.rental.mapping.ReviewMapper;
+import com.max.rental.models.entities.Address;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.entities.PropertyType;
+import com.max.rental.models.entities.Review;
+import com.max.rental.models.entities.User;
+import com.max.rental.models.enums.EnumListingStatus;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Явные мапперы против прежнего ModelMapper на тех же парах сущность/DTO.
+ * ModelMapper-варианты повторяют удалённый код сервисов вместе с ручной
+ * дозаливкой полей. Аллокации на операцию - gc.alloc.rate.norm из {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    private final ListingDetailsMapper listingDetailsMapper = new ListingDetailsMapper();
+    private final ReviewMapper reviewMapper = new ReviewMapper();
+    private final ModelMapper modelMapper = new ModelMapper();
+
+    private Listing listing;
+    private Review review;
+
+    @Setup
+    public void setUp() {
+        User owner = new User();
+        owner.setId(7L);
+        owner.setFirstName("Иван");
+        owner.setLastName("Петров");
+        owner.setOwnerRating(4.8);
+
+        Address address = new Address();
+        address.setCity("Москва");
+        address.setDistrict("Центральный");
+
+        PropertyType type = new PropertyType();
+        type.setType("APARTMENT");
+
+        listing = new Listing();
+        listing.setId(42L);
+        listing.setOwner(owner);
+        listing.setAddress(address);
+        listing.setPropertyType(type);
+        listing.setTitle("Уютная студия в центре");
+        listing.setDescription("Светлая студия в 5 мин от метро. Идеально для пары. Рядом Красная площадь.");
+        listing.setPricePerNight(new BigDecimal("5500.00"));
+        listing.setConstructionYear(2018);
+        listing.setTotalFloors(5);
+        listing.setFloor(2);
+        listing.setRoomCount(1);
+        listing.setRules("Без вечеринок.");
+        listing.setStatus(EnumListingStatus.ACTIVE);
+        listing.setAverageRating(4.5);
+
+        User guest = new User();
+        guest.setId(9L);
+        guest.setFirstName("Мария");
+        guest.setLastName("Иванова");
+
+        review = new Review();
+        review.setId(100L);
+        review.setListing(listing);
+        review.setGuest(guest);
+        review.setRating(5);
+        review.setComment("Отличная квартира! Всё чисто и удобно. Хозяин очень вежливый.");
+        review.setCreatedAt(LocalDateTime.of(2026, 9, 1, 12, 0));
+    }
+
+    @Benchmark
+    public ListingDetailsDto listingDetailsExplicit() {
+        return listingDetailsMapper.map(listing);
+    }
+
+    @Benchmark
+    public ListingDetailsDto listingDetailsModelMapper() {
+        ListingDetailsDto dto = modelMapper.map(listing, ListingDetailsDto.class);
+        dto.setCity(listing.getAddress().getCity());
+        dto.setDistrict(listing.getAddress().getDistrict());
+        dto.setPropertyType(listing.getPropertyType().getType());
+        dto.setOwnerId(listing.getOwner().getId());
+        dto.setOwnerFullName(listing.getOwner().getFullName());
+        dto.setOwnerRating(listing.getOwner().getOwnerRating());
+        return dto;
+    }
+
+    @Benchmark
+    public ReviewDto reviewExplicit() {
+        return reviewMapper.map(review);
+    }
+
+    @Benchmark
+    public ReviewDto reviewModelMapper() {
+        ReviewDto dto = modelMapper.map(review, ReviewDto.class);
+        dto.setGuestName(review.getGuest().getFirstName());
+        if (review.getCreatedAt() != null) {
+            dto.setReviewDate(review.getCreatedAt().toLocalDate());
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,194 @@
+package com.max.rental.benchmark;
+
+import com.max.rental.HousingRentalApplication;
+import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.models.entities.Address;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.entities.PropertyType;
+import com.max.rental.models.entities.User;
+import com.max.rental.models.enums.EnumListingStatus;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.repositories.PropertyTypeRepository;
+import com.max.rental.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение карточек объявлений на настоящем Postgres (Testcontainers): проекция
+ * SUMMARY_SELECT против прежнего пути - сущности с join fetch адреса и типа
+ * и ModelMapper. Одна операция - одна строка: ops/s - строки в секунду,
+ * gc.alloc.rate.norm из {@code -prof gc} - байты на строку.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListingSummaryQueryBenchmark {
+
+    private static final int ROWS = 100;
+    private static final int LISTINGS = 2000;
+
+    // Запрос и отображение из ListingService до перехода на проекции
+    private static final String ENTITY_QUERY = "SELECT l FROM Listing l " +
+            "JOIN FETCH l.address JOIN FETCH l.propertyType WHERE l.id IN :ids";
+
+    private PostgreSQLContainer<?> postgres;
+    private GenericContainer<?> redis;
+    private ConfigurableApplicationContext context;
+
+    private ListingRepository listingRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private final ModelMapper modelMapper = new ModelMapper();
+    private List<Long> ids;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+        postgres.start();
+        redis.start();
+
+        context = new SpringApplicationBuilder(HousingRentalApplication.class)
+                .profiles("test")
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "spring.data.redis.host=" + redis.getHost(),
+                        "spring.data.redis.port=" + redis.getMappedPort(6379),
+                        "server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.max.rental=WARN",
+                        "logging.level.org.springframework.security=WARN",
+                        "logging.level.org.springframework.web=WARN",
+                        "logging.level.org.hibernate.SQL=WARN")
+                .run();
+
+        listingRepository = context.getBean(ListingRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        List<Long> saved = transaction.execute(status -> seed());
+        ids = new ArrayList<>(saved.subList(0, ROWS));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        if (redis != null) {
+            redis.stop();
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ListingSummaryDto> projection() {
+        return readOnly.execute(status -> listingRepository.findSummariesByIdIn(ids));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<ListingSummaryDto> entitiesWithModelMapper() {
+        return readOnly.execute(status -> entityManager.createQuery(ENTITY_QUERY, Listing.class)
+                .setParameter("ids", ids)
+                .getResultList()
+                .stream()
+                .map(this::mapToDto)
+                .toList());
+    }
+
+    private ListingSummaryDto mapToDto(Listing listing) {
+        ListingSummaryDto dto = modelMapper.map(listing, ListingSummaryDto.class);
+
+        String desc = listing.getDescription();
+        dto.setDescription(desc != null && desc.length() > 100 ? desc.substring(0, 100) + "..." : desc);
+
+        if (listing.getAddress() != null) {
+            dto.setCity(listing.getAddress().getCity());
+            dto.setDistrict(listing.getAddress().getDistrict());
+        }
+        if (listing.getPropertyType() != null) {
+            dto.setType(listing.getPropertyType().getType());
+        }
+        return dto;
+    }
+
+    private List<Long> seed() {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        PropertyTypeRepository propertyTypeRepository = context.getBean(PropertyTypeRepository.class);
+
+        User owner = new User();
+        owner.setEmail("owner@bench.ru");
+        owner.setPasswordHash("{noop}password");
+        owner.setFirstName("Иван");
+        owner.setLastName("Петров");
+        owner = userRepository.save(owner);
+
+        PropertyType type = new PropertyType();
+        type.setType("APARTMENT");
+        type = propertyTypeRepository.save(type);
+
+        // Полные тексты, как в реальных объявлениях: прежний путь читал их целиком
+        String description = "Светлая квартира в пяти минутах от метро, свежий ремонт, вся техника. ".repeat(12);
+        String rules = "Без вечеринок, без курения, тихий час с 23:00. ".repeat(6);
+
+        List<Listing> listings = new ArrayList<>(LISTINGS);
+        for (int i = 0; i < LISTINGS; i++) {
+            Address address = new Address();
+            address.setCity("Город " + (i % 20));
+            address.setDistrict("Район " + (i % 7));
+
+            Listing listing = new Listing();
+            listing.setOwner(owner);
+            listing.setPropertyType(type);
+            listing.setAddress(address);
+            listing.setTitle("Квартира у метро №" + i);
+            listing.setDescription(description);
+            listing.setRules(rules);
+            listing.setPricePerNight(new BigDecimal(1500 + (i * 250) % 20000));
+            listing.setRoomCount(1 + i % 4);
+            listing.setStatus(EnumListingStatus.ACTIVE);
+            listing.setCreatedAt(LocalDateTime.now());
+            listings.add(listing);
+        }
+        return listingRepository.saveAll(listings).stream().map(Listing::getId).toList();
+    }
+}
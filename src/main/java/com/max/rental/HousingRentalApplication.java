@@ -2,10 +2,12 @@ package com.max.rental;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class HousingRentalApplication {
     public static void main(String[] args) {
         SpringApplication.run(HousingRentalApplication.class, args);
     }
-}
\ No newline at end of file
+}
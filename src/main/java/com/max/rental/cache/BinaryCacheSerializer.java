@@ -0,0 +1,292 @@
+package com.max.rental.cache;
+
+import com.max.rental.cache.codec.CacheValueCodec;
+import com.max.rental.cache.codec.CodecIo;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сериализатор значений кэша в компактный бинарный формат.
+ * <pre>
+ * [формат: 1 байт][id типа][версия схемы][данные]
+ * </pre>
+ * Для типов с зарегистрированным кодеком (и списков из них) пишется бинарная форма,
+ * при размере больше порога - сжатая Deflate. Остальные значения пишутся
+ * запасным сериализатором (JSON); его записи начинаются не с байта формата,
+ * поэтому старые JSON-записи в Redis читаются и после перехода.
+ * Записи неизвестного типа или более новой версии схемы читаются как промах кэша.
+ * <p>
+ * Размер и время записи и чтения пишутся в метрики по форматам. Сравнение с JSON
+ * на одних и тех же данных - CacheFormatBenchmark (профиль jmh).
+ */
+@Slf4j
+public class BinaryCacheSerializer implements RedisSerializer<Object> {
+
+    private static final byte FORMAT_BINARY = 0x01;
+    private static final byte FORMAT_DEFLATED = 0x02;
+    private static final int LIST_TYPE_ID = 0;
+    private static final int EMPTY_ELEMENT_TYPE_ID = 0;
+
+    private final Map<Class<?>, CacheValueCodec<?>> codecsByType = new HashMap<>();
+    private final Map<Integer, CacheValueCodec<?>> codecsById = new HashMap<>();
+    private final RedisSerializer<Object> fallback;
+    private final int compressionThreshold;
+
+    private final DistributionSummary binaryBytes;
+    private final DistributionSummary deflatedBytes;
+    private final DistributionSummary fallbackBytes;
+    private final Timer binaryEncode;
+    private final Timer fallbackEncode;
+    private final Timer binaryDecode;
+    private final Timer fallbackDecode;
+
+    public BinaryCacheSerializer(List<CacheValueCodec<?>> codecs,
+                                 RedisSerializer<Object> fallback,
+                                 int compressionThreshold,
+                                 MeterRegistry meterRegistry) {
+        for (CacheValueCodec<?> codec : codecs) {
+            if (codec.typeId() <= LIST_TYPE_ID || codec.typeId() > 0xFF) {
+                throw new IllegalArgumentException("Недопустимый id типа кодека: " + codec.typeId());
+            }
+            if (codecsById.putIfAbsent(codec.typeId(), codec) != null) {
+                throw new IllegalArgumentException("Повторный id типа кодека: " + codec.typeId());
+            }
+            codecsByType.put(codec.type(), codec);
+        }
+        this.fallback = fallback;
+        this.compressionThreshold = compressionThreshold;
+        this.binaryBytes = valueSize(meterRegistry, "cache.value.size", "binary");
+        this.deflatedBytes = valueSize(meterRegistry, "cache.value.size", "deflated");
+        this.fallbackBytes = valueSize(meterRegistry, "cache.value.size", "json");
+        this.binaryEncode = timer(meterRegistry, "cache.value.encode", "binary");
+        this.fallbackEncode = timer(meterRegistry, "cache.value.encode", "json");
+        this.binaryDecode = timer(meterRegistry, "cache.value.decode", "binary");
+        this.fallbackDecode = timer(meterRegistry, "cache.value.decode", "json");
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        long started = System.nanoTime();
+        byte[] result = serializeBinary(value);
+        if (result == null) {
+            byte[] json = fallback.serialize(value);
+            fallbackEncode.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            fallbackBytes.record(json != null ? json.length : 0);
+            return json;
+        }
+        binaryEncode.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    // Возвращает null, если для значения нет кодека
+    private byte[] serializeBinary(Object value) {
+        byte[] body = encode(value);
+        if (body == null) {
+            return null;
+        }
+
+        if (body.length > compressionThreshold) {
+            byte[] deflated = deflate(body);
+            if (deflated.length < body.length) {
+                deflatedBytes.record(deflated.length);
+                return deflated;
+            }
+        }
+
+        byte[] result = new byte[body.length + 1];
+        result[0] = FORMAT_BINARY;
+        System.arraycopy(body, 0, result, 1, body.length);
+        binaryBytes.record(result.length);
+        return result;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != FORMAT_BINARY && bytes[0] != FORMAT_DEFLATED) {
+            long started = System.nanoTime();
+            Object value = fallback.deserialize(bytes);
+            fallbackDecode.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return value;
+        }
+        long started = System.nanoTime();
+        Object value = deserializeBinary(bytes);
+        binaryDecode.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return value;
+    }
+
+    private Object deserializeBinary(byte[] bytes) {
+        try {
+            if (bytes[0] == FORMAT_DEFLATED) {
+                return decode(new DataInputStream(new ByteArrayInputStream(inflate(bytes))));
+            }
+            return decode(new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1)));
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Не удалось прочитать значение кэша", e);
+        }
+    }
+
+    // Возвращает null, если для значения нет кодека
+    private byte[] encode(Object value) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(buffer);
+
+            if (value instanceof List<?> list) {
+                CacheValueCodec<Object> elementCodec = commonCodec(list);
+                if (elementCodec == null && !list.isEmpty()) {
+                    return null;
+                }
+                out.writeByte(LIST_TYPE_ID);
+                out.writeByte(elementCodec != null ? elementCodec.typeId() : EMPTY_ELEMENT_TYPE_ID);
+                out.writeByte(elementCodec != null ? elementCodec.version() : 0);
+                CodecIo.writeVarLong(out, list.size());
+                for (Object element : list) {
+                    elementCodec.write(element, out);
+                }
+            } else {
+                CacheValueCodec<Object> codec = codecFor(value.getClass());
+                if (codec == null) {
+                    return null;
+                }
+                out.writeByte(codec.typeId());
+                out.writeByte(codec.version());
+                codec.write(value, out);
+            }
+
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Не удалось записать значение кэша", e);
+        }
+    }
+
+    private Object decode(DataInputStream in) throws IOException {
+        int typeId = in.readUnsignedByte();
+        if (typeId != LIST_TYPE_ID) {
+            int version = in.readUnsignedByte();
+            CacheValueCodec<?> codec = readableCodec(typeId, version);
+            return codec != null ? codec.read(in, version) : null;
+        }
+
+        int elementTypeId = in.readUnsignedByte();
+        int elementVersion = in.readUnsignedByte();
+        int size = (int) CodecIo.readVarLong(in);
+        List<Object> list = new ArrayList<>(size);
+        if (elementTypeId == EMPTY_ELEMENT_TYPE_ID) {
+            return list;
+        }
+        CacheValueCodec<?> codec = readableCodec(elementTypeId, elementVersion);
+        if (codec == null) {
+            return null;
+        }
+        for (int i = 0; i < size; i++) {
+            list.add(codec.read(in, elementVersion));
+        }
+        return list;
+    }
+
+    private CacheValueCodec<?> readableCodec(int typeId, int version) {
+        CacheValueCodec<?> codec = codecsById.get(typeId);
+        if (codec == null || version > codec.version()) {
+            log.debug("Пропускаем запись кэша: тип {} версии {} не поддерживается", typeId, version);
+            return null;
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheValueCodec<Object> codecFor(Class<?> type) {
+        return (CacheValueCodec<Object>) codecsByType.get(type);
+    }
+
+    private CacheValueCodec<Object> commonCodec(List<?> list) {
+        CacheValueCodec<Object> codec = null;
+        for (Object element : list) {
+            if (element == null) {
+                return null;
+            }
+            CacheValueCodec<Object> elementCodec = codecFor(element.getClass());
+            if (elementCodec == null || (codec != null && codec != elementCodec)) {
+                return null;
+            }
+            codec = elementCodec;
+        }
+        return codec;
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 2 + 16);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(FORMAT_DEFLATED);
+            CodecIo.writeVarLong(out, body.length);
+            byte[] chunk = new byte[1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                out.write(chunk, 0, count);
+            }
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Не удалось сжать значение кэша", e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException, DataFormatException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        int length = (int) CodecIo.readVarLong(new DataInputStream(stream));
+        int offset = bytes.length - stream.available();
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int count = inflater.inflate(body, read, length - read);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Сжатое значение кэша обрезано");
+                }
+                read += count;
+            }
+            return body;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static DistributionSummary valueSize(MeterRegistry meterRegistry, String name, String format) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String name, String format) {
+        return Timer.builder(name)
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.max.rental.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рассылает между узлами приложения сообщения о сброшенных ключах кэша через Redis pub/sub.
+ * Свои сообщения узел игнорирует - локальный уровень он уже сбросил сам.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String CHANNEL = "cache:invalidation";
+
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, LocalCacheListener> listeners = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public void register(String cacheName, LocalCacheListener listener) {
+        listeners.put(cacheName, listener);
+    }
+
+    public void publishEvict(String cacheName, String key) {
+        publish(String.join(SEPARATOR, EVICT, nodeId, cacheName, key));
+    }
+
+    public void publishClear(String cacheName) {
+        publish(String.join(SEPARATOR, CLEAR, nodeId, cacheName));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 4);
+        if (parts.length < 3 || nodeId.equals(parts[1])) {
+            return;
+        }
+        LocalCacheListener listener = listeners.get(parts[2]);
+        if (listener == null) {
+            return;
+        }
+        if (CLEAR.equals(parts[0])) {
+            listener.clearLocal();
+        } else if (EVICT.equals(parts[0]) && parts.length == 4) {
+            listener.evictLocal(parts[3]);
+        }
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (DataAccessException e) {
+            // Локальные копии на других узлах доживут до своего TTL
+            log.warn("Не удалось разослать инвалидацию кэша: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Локальный уровень кэша, который сбрасывается по сообщениям других узлов.
+     */
+    public interface LocalCacheListener {
+
+        void evictLocal(String key);
+
+        void clearLocal();
+    }
+}
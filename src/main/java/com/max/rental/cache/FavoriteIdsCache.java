@@ -0,0 +1,33 @@
+package com.max.rental.cache;
+
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.favorite.FavoriteIdSet;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Кэш множества избранных объявлений пользователя с версией пользователя в ключе
+ * ({@link VersionedCache}): изменение избранного поднимает её после коммита,
+ * и следующий запрос читает множество одним запросом к БД.
+ */
+@Component
+public class FavoriteIdsCache {
+
+    private final VersionedCache<FavoriteIdSet> cache;
+
+    public FavoriteIdsCache(VersionedCacheFactory cacheFactory) {
+        this.cache = cacheFactory.create(RedisCacheConfig.FAVORITE_IDS_CACHE);
+    }
+
+    public FavoriteIdSet get(Long userId, Supplier<FavoriteIdSet> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Поднимает версию избранного пользователя после коммита текущей транзакции.
+     */
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+}
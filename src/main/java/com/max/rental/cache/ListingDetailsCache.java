@@ -0,0 +1,42 @@
+package com.max.rental.cache;
+
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.listing.ListingDetailsDto;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Кэш общей для всех посетителей части страницы объявления: само объявление,
+ * владелец и отзывы. Ключ записи включает версию объявления ({@link VersionedCache}).
+ * Признаки текущего пользователя в кэш не попадают и накладываются после чтения.
+ */
+@Component
+public class ListingDetailsCache {
+
+    private final VersionedCache<ListingDetailsDto> cache;
+
+    public ListingDetailsCache(VersionedCacheFactory cacheFactory) {
+        this.cache = cacheFactory.create(RedisCacheConfig.LISTING_DETAILS_CACHE);
+    }
+
+    /**
+     * Общая часть страницы объявления. Возвращаемый объект разделяется между
+     * запросами и не должен изменяться - для наложения используется {@link ListingDetailsDto#copy()}.
+     */
+    public ListingDetailsDto get(Long listingId, Supplier<ListingDetailsDto> loader) {
+        return cache.get(listingId, loader);
+    }
+
+    /**
+     * Поднимает версию объявления после коммита текущей транзакции.
+     */
+    public void invalidate(Long listingId) {
+        cache.invalidate(listingId);
+    }
+
+    public void invalidateAll(Collection<Long> listingIds) {
+        cache.invalidateAll(listingIds);
+    }
+}
@@ -0,0 +1,34 @@
+package com.max.rental.cache;
+
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.listing.OwnerDashboardDto;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш кабинета владельца. Ключ включает версию владельца ({@link VersionedCache}):
+ * объявления, бронирования и отзывы поднимают её после коммита. В ключ входит
+ * и дата - с её сменой меняется число активных бронирований.
+ */
+@Component
+public class OwnerDashboardCache {
+
+    private final VersionedCache<OwnerDashboardDto> cache;
+
+    public OwnerDashboardCache(VersionedCacheFactory cacheFactory) {
+        this.cache = cacheFactory.create(RedisCacheConfig.OWNER_DASHBOARD_CACHE);
+    }
+
+    public OwnerDashboardDto get(Long ownerId, Supplier<OwnerDashboardDto> loader) {
+        return cache.get(ownerId, LocalDate.now().toString(), loader);
+    }
+
+    /**
+     * Поднимает версию кабинета владельца после коммита текущей транзакции.
+     */
+    public void invalidate(Long ownerId) {
+        cache.invalidate(ownerId);
+    }
+}
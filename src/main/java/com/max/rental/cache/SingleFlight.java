@@ -0,0 +1,150 @@
+package com.max.rental.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Схлопывание одновременных промахов кэша по одному ключу. В пределах узла загрузку
+ * выполняет первый поток, остальные ждут его результат. Между узлами загрузчик
+ * выбирается короткой арендой в Redis (SET NX PX), остальные узлы опрашивают кэш,
+ * пока значение не появится или не истечёт время ожидания.
+ */
+@Slf4j
+@Component
+public class SingleFlight {
+
+    private static final String LEASE_PREFIX = "lease:";
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration lease;
+    private final long waitMillis;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(StringRedisTemplate redisTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.cache.single-flight.lease-ms:5000}") long leaseMillis,
+                        @Value("${app.cache.single-flight.wait-ms:3000}") long waitMillis) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Возвращает значение из общего кэша ({@code lookup}) или загружает его ({@code loader}),
+     * гарантируя, что одновременно по ключу работает не больше одного загрузчика.
+     * Загрузчик сам кладёт результат в общий кэш.
+     */
+    public <T> T execute(String key, Supplier<T> lookup, Callable<T> loader) throws Exception {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, own);
+        if (leader != null) {
+            record("coalesced");
+            return await(key, leader, loader);
+        }
+
+        try {
+            T value = loadOnce(key, lookup, loader);
+            own.complete(value);
+            return value;
+        } catch (Exception e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(String key, CompletableFuture<Object> leader, Callable<T> loader) throws Exception {
+        try {
+            return (T) leader.get(lease.toMillis() + waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            log.warn("Не дождались загрузки ключа {}, загружаем сами", key);
+            record("timeout");
+            return loader.call();
+        }
+    }
+
+    private <T> T loadOnce(String key, Supplier<T> lookup, Callable<T> loader) throws Exception {
+        T cached = lookup.get();
+        if (cached != null) {
+            return cached;
+        }
+
+        String leaseKey = LEASE_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            if (tryAcquire(leaseKey, token)) {
+                try {
+                    // Пока ждали аренду, значение мог записать другой узел
+                    cached = lookup.get();
+                    if (cached != null) {
+                        return cached;
+                    }
+                    record("loaded");
+                    return loader.call();
+                } finally {
+                    release(leaseKey, token);
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                log.warn("Аренда загрузки {} занята дольше {} мс, загружаем без неё", key, waitMillis);
+                record("timeout");
+                return loader.call();
+            }
+
+            Thread.sleep(POLL_INTERVAL_MS);
+            cached = lookup.get();
+            if (cached != null) {
+                record("waited");
+                return cached;
+            }
+        }
+    }
+
+    private boolean tryAcquire(String leaseKey, String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(leaseKey, token, lease));
+        } catch (DataAccessException e) {
+            // Без Redis координировать узлы нечем - достаточно локального схлопывания
+            log.warn("Не удалось взять аренду {}: {}", leaseKey, e.getMessage());
+            return true;
+        }
+    }
+
+    private void release(String leaseKey, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey), token);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось освободить аренду {}: {}", leaseKey, e.getMessage());
+        }
+    }
+
+    private void record(String outcome) {
+        meterRegistry.counter("cache.single.flight", "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,185 @@
+package com.max.rental.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Кэш из двух уровней: локальный Caffeine в памяти узла и общий Redis.
+ * Чтение сначала идёт в локальный уровень, запись и сброс - в оба уровня
+ * с рассылкой инвалидации остальным узлам. Промахи с загрузчиком
+ * ({@code @Cacheable(sync = true)}) схлопываются через {@link SingleFlight}.
+ */
+public class TwoLevelCache implements Cache, CacheInvalidationBus.LocalCacheListener {
+
+    private final RedisCache remote;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final CacheInvalidationBus invalidationBus;
+    private final SingleFlight singleFlight;
+
+    public TwoLevelCache(RedisCache remote,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         CacheInvalidationBus invalidationBus,
+                         SingleFlight singleFlight) {
+        this.remote = remote;
+        this.local = local;
+        this.invalidationBus = invalidationBus;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    public RedisCache getRemote() {
+        return remote;
+    }
+
+    /**
+     * Значение только из локального уровня, без обращения к Redis.
+     */
+    public Object getLocal(Object key) {
+        return local.getIfPresent(localKey(key));
+    }
+
+    /**
+     * Кладёт в локальный уровень значение, уже прочитанное из Redis в обход этого кэша.
+     */
+    public void putLocal(Object key, Object value) {
+        if (value != null) {
+            local.put(localKey(key), value);
+        }
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            local.put(localKey, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return (T) value;
+        }
+        T loaded;
+        try {
+            loaded = singleFlight.execute(getName() + "::" + localKey,
+                    () -> {
+                        ValueWrapper wrapper = remote.get(key);
+                        return wrapper != null ? (T) wrapper.get() : null;
+                    },
+                    () -> {
+                        T result = valueLoader.call();
+                        if (result != null) {
+                            remote.put(key, result);
+                        }
+                        return result;
+                    });
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (loaded != null) {
+            local.put(localKey, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            local.put(localKey, value);
+        }
+        invalidationBus.publishEvict(getName(), localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        Object current = existing != null ? existing.get() : value;
+        if (current != null) {
+            local.put(localKey(key), current);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        invalidationBus.publishEvict(getName(), localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        invalidationBus.publishEvict(getName(), localKey);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationBus.publishClear(getName());
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = remote.invalidate();
+        local.invalidateAll();
+        invalidationBus.publishClear(getName());
+        return invalidated;
+    }
+
+    @Override
+    public void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    @Override
+    public void clearLocal() {
+        local.invalidateAll();
+    }
+
+    // Ключи в Redis тоже строковые, поэтому Long 5 и "5" указывают на одну запись
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,102 @@
+package com.max.rental.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.max.rental.dto.favorite.FavoriteIdSet;
+import com.max.rental.dto.listing.ListingDetailsDto;
+import com.max.rental.dto.listing.OwnerDashboardDto;
+import com.max.rental.search.CachedSearchResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Менеджер кэшей, который ставит перед каждым кэшем Redis локальный Caffeine
+ * с ограничением по суммарному весу записей (W-TinyLFU вытеснение).
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final RedisCacheManager redisCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final SingleFlight singleFlight;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxWeight;
+    private final Duration localTtl;
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                CacheInvalidationBus invalidationBus,
+                                SingleFlight singleFlight,
+                                MeterRegistry meterRegistry,
+                                long localMaxWeight,
+                                Duration localTtl) {
+        this.redisCacheManager = redisCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.singleFlight = singleFlight;
+        this.meterRegistry = meterRegistry;
+        this.localMaxWeight = localMaxWeight;
+        this.localTtl = localTtl;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+
+    private TwoLevelCache createCache(String name) {
+        RedisCache remote = (RedisCache) redisCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumWeight(localMaxWeight)
+                .weigher((String key, Object value) -> weigh(value))
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "local");
+
+        TwoLevelCache cache = new TwoLevelCache(remote, local, invalidationBus, singleFlight);
+        invalidationBus.register(name, cache);
+        return cache;
+    }
+
+    // Вес - примерное число элементов, чтобы большие списки вытесняли больше мелких записей
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return 1 + collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 1 + map.size();
+        }
+        if (value instanceof CachedSearchResult result && result.getListingIds() != null) {
+            return 1 + result.getListingIds().size();
+        }
+        if (value instanceof ListingDetailsDto details && details.getReviews() != null) {
+            return 1 + details.getReviews().size();
+        }
+        if (value instanceof OwnerDashboardDto dashboard && dashboard.getListings() != null) {
+            return 1 + dashboard.getListings().size();
+        }
+        if (value instanceof FavoriteIdSet favorites) {
+            // long[] занимает заметно меньше списка объектов
+            return 1 + favorites.size() / 8;
+        }
+        return 1;
+    }
+}
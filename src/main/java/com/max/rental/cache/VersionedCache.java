@@ -0,0 +1,124 @@
+package com.max.rental.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.max.rental.services.support.AfterCommit;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Кэш с версией владельца записи в ключе: {@code <id>:v<версия>[:<уточнение>]}.
+ * Версия - счётчик в Redis, инвалидация - один INCR после коммита: старые записи
+ * перестают читаться и истекают по TTL. Версии дополнительно держатся в локальном
+ * Caffeine, поэтому попадание не стоит запроса к Redis; поднятая версия рассылается
+ * остальным узлам через {@link CacheInvalidationBus}.
+ * <p>
+ * Создаётся через {@link VersionedCacheFactory}.
+ */
+@Slf4j
+public class VersionedCache<V> implements CacheInvalidationBus.LocalCacheListener {
+
+    // Счётчик живёт дольше записей кэша, иначе сброс версии в 0 мог бы оживить старую запись
+    private static final Duration VERSION_TTL = Duration.ofDays(1);
+
+    private final org.springframework.cache.Cache entries;
+    private final Cache<Long, Long> localVersions;
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final String versionPrefix;
+    private final String busName;
+    private final Counter invalidations;
+
+    VersionedCache(String name,
+                   org.springframework.cache.Cache entries,
+                   Cache<Long, Long> localVersions,
+                   StringRedisTemplate redisTemplate,
+                   CacheInvalidationBus invalidationBus,
+                   Counter invalidations) {
+        this.entries = entries;
+        this.localVersions = localVersions;
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.versionPrefix = name + ":version:";
+        this.busName = name + ":version";
+        this.invalidations = invalidations;
+        invalidationBus.register(busName, this);
+    }
+
+    public V get(Long id, Supplier<V> loader) {
+        return get(id, null, loader);
+    }
+
+    /**
+     * @param qualifier дополнительная часть ключа (например, дата), может быть null
+     */
+    public V get(Long id, String qualifier, Supplier<V> loader) {
+        Long version;
+        try {
+            version = localVersions.get(id, this::readVersion);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось прочитать версию {}{}, читаем без кэша: {}", versionPrefix, id, e.getMessage());
+            return loader.get();
+        }
+        String key = id + ":v" + version + (qualifier != null ? ":" + qualifier : "");
+        try {
+            return entries.get(key, loader::get);
+        } catch (org.springframework.cache.Cache.ValueRetrievalException e) {
+            // Ошибку загрузчика (например, запись не найдена) отдаём как есть
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Поднимает версию после коммита текущей транзакции.
+     */
+    public void invalidate(Long id) {
+        AfterCommit.run(() -> bumpVersion(id));
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            AfterCommit.run(() -> ids.forEach(this::bumpVersion));
+        }
+    }
+
+    @Override
+    public void evictLocal(String key) {
+        localVersions.invalidate(Long.valueOf(key));
+    }
+
+    @Override
+    public void clearLocal() {
+        localVersions.invalidateAll();
+    }
+
+    private Long readVersion(Long id) {
+        String version = redisTemplate.opsForValue().get(versionPrefix + id);
+        return version != null ? Long.valueOf(version) : 0L;
+    }
+
+    private void bumpVersion(Long id) {
+        String key = versionPrefix + id;
+        try {
+            Long version = redisTemplate.opsForValue().increment(key);
+            redisTemplate.expire(key, VERSION_TTL);
+            if (version != null) {
+                // Параллельные подъёмы могут прийти не по порядку - оставляем старшую версию
+                localVersions.asMap().merge(id, version, Math::max);
+            } else {
+                localVersions.invalidate(id);
+            }
+            invalidationBus.publishEvict(busName, id.toString());
+            invalidations.increment();
+        } catch (DataAccessException e) {
+            // Запись доживёт до TTL кэша
+            localVersions.invalidate(id);
+            log.warn("Не удалось обновить версию {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.max.rental.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Собирает {@link VersionedCache} поверх кэша из {@link CacheManager}. Локальные копии
+ * версий живут не дольше {@code app.cache.local.ttl-seconds}, как и локальный уровень
+ * самих записей, - на случай потерянного сообщения шины.
+ */
+@Component
+public class VersionedCacheFactory {
+
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final long localMaxSize;
+    private final Duration localTtl;
+
+    public VersionedCacheFactory(CacheManager cacheManager,
+                                 StringRedisTemplate redisTemplate,
+                                 CacheInvalidationBus invalidationBus,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.cache.version.local-max-size:100000}") long localMaxSize,
+                                 @Value("${app.cache.local.ttl-seconds:60}") long localTtlSeconds) {
+        this.cacheManager = cacheManager;
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = Duration.ofSeconds(localTtlSeconds);
+    }
+
+    public <V> VersionedCache<V> create(String cacheName) {
+        Cache<Long, Long> localVersions = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localVersions, cacheName + ".versions", "tier", "local");
+
+        return new VersionedCache<>(
+                cacheName,
+                Objects.requireNonNull(cacheManager.getCache(cacheName), cacheName),
+                localVersions,
+                redisTemplate,
+                invalidationBus,
+                meterRegistry.counter("cache.version.invalidations", "cache", cacheName));
+    }
+}
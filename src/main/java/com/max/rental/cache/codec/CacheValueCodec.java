@@ -0,0 +1,23 @@
+package com.max.rental.cache.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Бинарный формат одного типа значений кэша. {@link #typeId()} хранится в каждой записи
+ * и не должен меняться; при изменении полей увеличивается {@link #version()}, а
+ * {@link #read} продолжает понимать старые версии, пока их записи не истекут.
+ */
+public interface CacheValueCodec<T> {
+
+    int typeId();
+
+    int version();
+
+    Class<T> type();
+
+    void write(T value, DataOutput out) throws IOException;
+
+    T read(DataInput in, int version) throws IOException;
+}
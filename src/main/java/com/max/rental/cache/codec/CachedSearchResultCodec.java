@@ -0,0 +1,57 @@
+package com.max.rental.cache.codec;
+
+import com.max.rental.search.CachedSearchResult;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Список id хранится разностями соседних значений в zigzag-varint: при сортировке
+ * по умолчанию id идут по возрастанию, и разности обычно занимают 1-2 байта.
+ * С версии 2 за списком следует курсор следующей страницы.
+ */
+public class CachedSearchResultCodec implements CacheValueCodec<CachedSearchResult> {
+
+    @Override
+    public int typeId() {
+        return 3;
+    }
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public Class<CachedSearchResult> type() {
+        return CachedSearchResult.class;
+    }
+
+    @Override
+    public void write(CachedSearchResult value, DataOutput out) throws IOException {
+        List<Long> ids = value.getListingIds() != null ? value.getListingIds() : List.of();
+        CodecIo.writeVarLong(out, ids.size());
+        long previous = 0;
+        for (Long id : ids) {
+            CodecIo.writeZigZag(out, id - previous);
+            previous = id;
+        }
+        CodecIo.writeString(out, value.getNextCursor());
+    }
+
+    @Override
+    public CachedSearchResult read(DataInput in, int version) throws IOException {
+        int size = (int) CodecIo.readVarLong(in);
+        List<Long> ids = new ArrayList<>(size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += CodecIo.readZigZag(in);
+            ids.add(previous);
+        }
+        String nextCursor = version >= 2 ? CodecIo.readString(in) : null;
+        return new CachedSearchResult(ids, nextCursor);
+    }
+}
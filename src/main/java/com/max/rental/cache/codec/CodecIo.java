@@ -0,0 +1,138 @@
+package com.max.rental.cache.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Примитивы бинарных кодеков: varint, строки и числа с признаком null.
+ */
+public final class CodecIo {
+
+    private CodecIo() {
+    }
+
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Некорректный varint");
+    }
+
+    public static void writeZigZag(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readZigZag(DataInput in) throws IOException {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    // Длина хранится со сдвигом на 1, ноль означает null
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeZigZag(out, value);
+        }
+    }
+
+    public static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? readZigZag(in) : null;
+    }
+
+    public static void writeInt(DataOutput out, Integer value) throws IOException {
+        writeLong(out, value != null ? value.longValue() : null);
+    }
+
+    public static Integer readInt(DataInput in) throws IOException {
+        Long value = readLong(in);
+        return value != null ? value.intValue() : null;
+    }
+
+    public static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    public static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    // 0 - null, 1 - false, 2 - true
+    public static void writeBoolean(DataOutput out, Boolean value) throws IOException {
+        out.writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    public static Boolean readBoolean(DataInput in) throws IOException {
+        byte value = in.readByte();
+        return value == 0 ? null : value == 2;
+    }
+
+    public static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeZigZag(out, value.scale());
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarLong(out, unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    public static BigDecimal readDecimal(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int scale = (int) readZigZag(in);
+        byte[] unscaled = new byte[(int) readVarLong(in)];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    public static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        writeLong(out, value != null ? value.toEpochDay() : null);
+    }
+
+    public static LocalDate readDate(DataInput in) throws IOException {
+        Long epochDay = readLong(in);
+        return epochDay != null ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.max.rental.cache.codec;
+
+import com.max.rental.dto.favorite.FavoriteIdSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Id отсортированы, поэтому хранятся разностями с предыдущим в varint.
+ */
+public class FavoriteIdSetCodec implements CacheValueCodec<FavoriteIdSet> {
+
+    @Override
+    public int typeId() {
+        return 5;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public Class<FavoriteIdSet> type() {
+        return FavoriteIdSet.class;
+    }
+
+    @Override
+    public void write(FavoriteIdSet value, DataOutput out) throws IOException {
+        CodecIo.writeVarLong(out, value.size());
+        long previous = 0;
+        for (int i = 0; i < value.size(); i++) {
+            CodecIo.writeVarLong(out, value.get(i) - previous);
+            previous = value.get(i);
+        }
+    }
+
+    @Override
+    public FavoriteIdSet read(DataInput in, int version) throws IOException {
+        long[] ids = new long[(int) CodecIo.readVarLong(in)];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += CodecIo.readVarLong(in);
+            ids[i] = previous;
+        }
+        return FavoriteIdSet.fromSorted(ids);
+    }
+}
@@ -0,0 +1,135 @@
+package com.max.rental.cache.codec;
+
+import com.max.rental.dto.listing.ListingDetailsDto;
+import com.max.rental.dto.review.RatingHistogramDto;
+import com.max.rental.dto.review.ReviewDto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Общая часть страницы объявления. Признаки текущего пользователя не пишутся.
+ */
+public class ListingDetailsCodec implements CacheValueCodec<ListingDetailsDto> {
+
+    @Override
+    public int typeId() {
+        return 4;
+    }
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public Class<ListingDetailsDto> type() {
+        return ListingDetailsDto.class;
+    }
+
+    @Override
+    public void write(ListingDetailsDto value, DataOutput out) throws IOException {
+        CodecIo.writeLong(out, value.getId());
+        CodecIo.writeString(out, value.getTitle());
+        CodecIo.writeString(out, value.getDescription());
+        CodecIo.writeDecimal(out, value.getPricePerNight());
+        CodecIo.writeString(out, value.getCity());
+        CodecIo.writeString(out, value.getDistrict());
+        CodecIo.writeString(out, value.getPropertyType());
+        CodecIo.writeInt(out, value.getRoomCount());
+        CodecIo.writeInt(out, value.getConstructionYear());
+        CodecIo.writeString(out, value.getRules());
+        CodecIo.writeInt(out, value.getFloor());
+        CodecIo.writeInt(out, value.getTotalFloors());
+        CodecIo.writeLong(out, value.getOwnerId());
+        CodecIo.writeString(out, value.getOwnerFullName());
+        CodecIo.writeDouble(out, value.getOwnerRating());
+        CodecIo.writeDouble(out, value.getAverageRating());
+        out.writeBoolean(value.isAvailableForBooking());
+        CodecIo.writeInt(out, value.getArea());
+        CodecIo.writeBoolean(out, value.getHasWifi());
+        CodecIo.writeBoolean(out, value.getHasWashingMachine());
+        CodecIo.writeBoolean(out, value.getHasParking());
+        CodecIo.writeBoolean(out, value.getHasKitchen());
+        CodecIo.writeBoolean(out, value.getHasAirConditioning());
+        CodecIo.writeBoolean(out, value.getHasBalcony());
+
+        List<ReviewDto> reviews = value.getReviews() != null ? value.getReviews() : List.of();
+        CodecIo.writeVarLong(out, reviews.size());
+        for (ReviewDto review : reviews) {
+            CodecIo.writeString(out, review.getGuestName());
+            CodecIo.writeInt(out, review.getRating());
+            CodecIo.writeString(out, review.getComment());
+            CodecIo.writeDate(out, review.getReviewDate());
+        }
+
+        // Версия 2: курсор следующей страницы отзывов и распределение оценок
+        CodecIo.writeString(out, value.getReviewsNextCursor());
+        RatingHistogramDto histogram = value.getRatingHistogram();
+        out.writeBoolean(histogram != null);
+        if (histogram != null) {
+            for (int rating = 1; rating <= 5; rating++) {
+                CodecIo.writeVarLong(out, histogram.getCount(rating));
+            }
+        }
+    }
+
+    @Override
+    public ListingDetailsDto read(DataInput in, int version) throws IOException {
+        ListingDetailsDto dto = new ListingDetailsDto();
+        dto.setId(CodecIo.readLong(in));
+        dto.setTitle(CodecIo.readString(in));
+        dto.setDescription(CodecIo.readString(in));
+        dto.setPricePerNight(CodecIo.readDecimal(in));
+        dto.setCity(CodecIo.readString(in));
+        dto.setDistrict(CodecIo.readString(in));
+        dto.setPropertyType(CodecIo.readString(in));
+        dto.setRoomCount(CodecIo.readInt(in));
+        dto.setConstructionYear(CodecIo.readInt(in));
+        dto.setRules(CodecIo.readString(in));
+        dto.setFloor(CodecIo.readInt(in));
+        dto.setTotalFloors(CodecIo.readInt(in));
+        dto.setOwnerId(CodecIo.readLong(in));
+        dto.setOwnerFullName(CodecIo.readString(in));
+        dto.setOwnerRating(CodecIo.readDouble(in));
+        dto.setAverageRating(CodecIo.readDouble(in));
+        dto.setAvailableForBooking(in.readBoolean());
+        dto.setArea(CodecIo.readInt(in));
+        dto.setHasWifi(CodecIo.readBoolean(in));
+        dto.setHasWashingMachine(CodecIo.readBoolean(in));
+        dto.setHasParking(CodecIo.readBoolean(in));
+        dto.setHasKitchen(CodecIo.readBoolean(in));
+        dto.setHasAirConditioning(CodecIo.readBoolean(in));
+        dto.setHasBalcony(CodecIo.readBoolean(in));
+
+        int count = (int) CodecIo.readVarLong(in);
+        List<ReviewDto> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ReviewDto review = new ReviewDto();
+            review.setGuestName(CodecIo.readString(in));
+            review.setRating(CodecIo.readInt(in));
+            review.setComment(CodecIo.readString(in));
+            review.setReviewDate(CodecIo.readDate(in));
+            reviews.add(review);
+        }
+        dto.setReviews(reviews);
+
+        if (version >= 2) {
+            dto.setReviewsNextCursor(CodecIo.readString(in));
+            if (in.readBoolean()) {
+                List<Long> counts = new ArrayList<>(5);
+                long total = 0;
+                for (int rating = 1; rating <= 5; rating++) {
+                    long starCount = CodecIo.readVarLong(in);
+                    counts.add(starCount);
+                    total += starCount;
+                }
+                dto.setRatingHistogram(new RatingHistogramDto(counts, total));
+            }
+        }
+        return dto;
+    }
+}
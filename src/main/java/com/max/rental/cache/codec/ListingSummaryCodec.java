@@ -0,0 +1,51 @@
+package com.max.rental.cache.codec;
+
+import com.max.rental.dto.listing.ListingSummaryDto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class ListingSummaryCodec implements CacheValueCodec<ListingSummaryDto> {
+
+    @Override
+    public int typeId() {
+        return 1;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public Class<ListingSummaryDto> type() {
+        return ListingSummaryDto.class;
+    }
+
+    @Override
+    public void write(ListingSummaryDto value, DataOutput out) throws IOException {
+        CodecIo.writeLong(out, value.getId());
+        CodecIo.writeString(out, value.getTitle());
+        CodecIo.writeString(out, value.getDescription());
+        CodecIo.writeDecimal(out, value.getPricePerNight());
+        CodecIo.writeString(out, value.getCity());
+        CodecIo.writeString(out, value.getDistrict());
+        CodecIo.writeString(out, value.getType());
+        CodecIo.writeDouble(out, value.getRating());
+    }
+
+    @Override
+    public ListingSummaryDto read(DataInput in, int version) throws IOException {
+        ListingSummaryDto dto = new ListingSummaryDto();
+        dto.setId(CodecIo.readLong(in));
+        dto.setTitle(CodecIo.readString(in));
+        dto.setDescription(CodecIo.readString(in));
+        dto.setPricePerNight(CodecIo.readDecimal(in));
+        dto.setCity(CodecIo.readString(in));
+        dto.setDistrict(CodecIo.readString(in));
+        dto.setType(CodecIo.readString(in));
+        dto.setRating(CodecIo.readDouble(in));
+        return dto;
+    }
+}
@@ -0,0 +1,37 @@
+package com.max.rental.cache.codec;
+
+import com.max.rental.dto.listing.PopularCityDto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class PopularCityCodec implements CacheValueCodec<PopularCityDto> {
+
+    @Override
+    public int typeId() {
+        return 2;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public Class<PopularCityDto> type() {
+        return PopularCityDto.class;
+    }
+
+    @Override
+    public void write(PopularCityDto value, DataOutput out) throws IOException {
+        CodecIo.writeString(out, value.getCity());
+        CodecIo.writeLong(out, value.getListingCount());
+        CodecIo.writeLong(out, value.getBookingCount());
+    }
+
+    @Override
+    public PopularCityDto read(DataInput in, int version) throws IOException {
+        return new PopularCityDto(CodecIo.readString(in), CodecIo.readLong(in), CodecIo.readLong(in));
+    }
+}
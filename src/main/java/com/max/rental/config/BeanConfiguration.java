@@ -1,16 +1,9 @@
 package com.max.rental.config;
 
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
 @Configuration
 @EnableJpaAuditing
 public class BeanConfiguration {
-
-    @Bean
-    public ModelMapper mapper() {
-        return new ModelMapper();
-    }
 }
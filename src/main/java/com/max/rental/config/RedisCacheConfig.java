@@ -4,18 +4,33 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.max.rental.cache.BinaryCacheSerializer;
+import com.max.rental.cache.CacheInvalidationBus;
+import com.max.rental.cache.SingleFlight;
+import com.max.rental.cache.TwoLevelCacheManager;
+import com.max.rental.cache.codec.CachedSearchResultCodec;
+import com.max.rental.cache.codec.FavoriteIdSetCodec;
+import com.max.rental.cache.codec.ListingDetailsCodec;
+import com.max.rental.cache.codec.ListingSummaryCodec;
+import com.max.rental.cache.codec.PopularCityCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -25,9 +40,48 @@ public class RedisCacheConfig {
     public static final String LISTING_SEARCH_CACHE = "listingSearch";
     public static final String POPULAR_CITIES_CACHE = "popularCities";
     public static final String LISTING_DETAILS_CACHE = "listingDetails";
+    public static final String LISTING_SUMMARY_CACHE = "listingSummary";
+    public static final String FEATURED_LISTINGS_CACHE = "featuredListings";
+    public static final String OWNER_DASHBOARD_CACHE = "ownerDashboard";
+    public static final String FAVORITE_IDS_CACHE = "favoriteIds";
+
+    public static final Duration LISTING_SEARCH_TTL = Duration.ofMinutes(5);
+
+    @Bean
+    @Primary
+    public CacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                     CacheInvalidationBus cacheInvalidationBus,
+                                     SingleFlight singleFlight,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.cache.local.max-weight:20000}") long localMaxWeight,
+                                     @Value("${app.cache.local.ttl-seconds:60}") long localTtlSeconds) {
+        return new TwoLevelCacheManager(redisCacheManager, cacheInvalidationBus, singleFlight, meterRegistry,
+                localMaxWeight, Duration.ofSeconds(localTtlSeconds));
+    }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * Сериализатор значений кэша; используется и в CacheFormatBenchmark.
+     */
+    public static BinaryCacheSerializer valueSerializer(int compressionThreshold, MeterRegistry meterRegistry) {
+        return new BinaryCacheSerializer(
+                List.of(new ListingSummaryCodec(), new PopularCityCodec(), new CachedSearchResultCodec(),
+                        new ListingDetailsCodec(), new FavoriteIdSetCodec()),
+                jsonValueSerializer(),
+                compressionThreshold,
+                meterRegistry);
+    }
+
+    /**
+     * Прежний JSON-формат значений: запасной сериализатор для типов без кодека.
+     */
+    public static GenericJackson2JsonRedisSerializer jsonValueSerializer() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.activateDefaultTyping(
@@ -35,26 +89,44 @@ public class RedisCacheConfig {
                 ObjectMapper.DefaultTyping.NON_FINAL,
                 JsonTypeInfo.As.PROPERTY
         );
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
 
-        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+    @Bean
+    public RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${app.cache.compression-threshold:1024}") int compressionThreshold) {
+        BinaryCacheSerializer valueSerializer = valueSerializer(compressionThreshold, meterRegistry);
 
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .disableCachingNullValues();
 
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
 
-        cacheConfigurations.put(LISTING_SEARCH_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(5)));
+        cacheConfigurations.put(LISTING_SEARCH_CACHE, defaultConfig.entryTtl(LISTING_SEARCH_TTL));
 
-        cacheConfigurations.put(POPULAR_CITIES_CACHE, defaultConfig.entryTtl(Duration.ofHours(1)));
+        // Счётчики городов ведутся в БД, кэш лишь сглаживает чтение главной страницы
+        cacheConfigurations.put(POPULAR_CITIES_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(1)));
 
+        // Ключ включает версию объявления, устаревшие версии просто истекают
         cacheConfigurations.put(LISTING_DETAILS_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(15)));
 
+        cacheConfigurations.put(LISTING_SUMMARY_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(30)));
+
+        cacheConfigurations.put(FEATURED_LISTINGS_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(30)));
+
+        // Версия владельца в ключе; короткий TTL ограничивает расхождение после сверки рейтингов
+        cacheConfigurations.put(OWNER_DASHBOARD_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(10)));
+
+        cacheConfigurations.put(FAVORITE_IDS_CACHE, defaultConfig.entryTtl(Duration.ofMinutes(30)));
+
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
+                .enableStatistics()
                 .build();
     }
 }
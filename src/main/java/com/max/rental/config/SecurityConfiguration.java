@@ -1,24 +1,39 @@
 package com.max.rental.config;
 
 import com.max.rental.repositories.UserRepository;
+import com.max.rental.security.AppUserCache;
 import com.max.rental.security.AppUserDetailsService;
 import com.max.rental.security.CustomAuthenticationSuccessHandler;
+import com.max.rental.security.PasswordHashingBusyException;
+import com.max.rental.security.PooledPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.DelegatingAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.ForwardAuthenticationFailureHandler;
 import org.springframework.security.web.context.DelegatingSecurityContextRepository;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
 
+import java.util.LinkedHashMap;
+
 
 @Slf4j
 @Configuration
@@ -28,11 +43,14 @@ public class SecurityConfiguration {
 
     private final UserRepository userRepository;
     private final CustomAuthenticationSuccessHandler successHandler;
+    private final AppUserCache appUserCache;
 
     public SecurityConfiguration(UserRepository userRepository,
-                                 CustomAuthenticationSuccessHandler successHandler) {
+                                 CustomAuthenticationSuccessHandler successHandler,
+                                 AppUserCache appUserCache) {
         this.userRepository = userRepository;
         this.successHandler = successHandler;
+        this.appUserCache = appUserCache;
         log.info("SecurityConfiguration инициализирована");
     }
 
@@ -44,9 +62,10 @@ public class SecurityConfiguration {
                         .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll()
                         .requestMatchers("/favicon.ico", "/error", "/css/**", "/js/**", "/images/**").permitAll()
 
-                        .requestMatchers("/", "/listings", "/listings/{id}").permitAll()
+                        .requestMatchers("/", "/listings", "/listings/{id}", "/listings/{id}/reviews").permitAll()
                         .requestMatchers("/auth/login", "/auth/register", "/auth/login-error", "/auth/access-denied").permitAll()
 
+                        .requestMatchers(HttpMethod.POST, "/bookings/quotes").permitAll()
                         .requestMatchers("/bookings/**").hasRole("GUEST")
                         .requestMatchers("/favorites/**").hasRole("GUEST")
                         .requestMatchers("/profile", "/profile/**").hasRole("GUEST")
@@ -62,7 +81,7 @@ public class SecurityConfiguration {
                         .usernameParameter("email")
                         .passwordParameter("password")
                         .successHandler(successHandler)
-                        .failureForwardUrl("/auth/login-error")
+                        .failureHandler(loginFailureHandler())
                         .permitAll()
                 )
                 .rememberMe(remember -> remember
@@ -98,12 +117,31 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${app.security.bcrypt.strength:12}") int strength,
+                                           @Value("${app.security.bcrypt.threads:0}") int threads,
+                                           @Value("${app.security.bcrypt.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        log.info("Хеширование паролей: BCrypt({}), потоков {}, очередь {}", strength, poolSize, queueCapacity);
+        return new PooledPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity, meterRegistry);
+    }
+
+    // Перегрузка пула хеширования - 503, остальные ошибки входа - прежняя страница
+    private AuthenticationFailureHandler loginFailureHandler() {
+        LinkedHashMap<Class<? extends AuthenticationException>, AuthenticationFailureHandler> handlers = new LinkedHashMap<>();
+        handlers.put(PasswordHashingBusyException.class, (request, response, exception) -> {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), exception.getMessage());
+        });
+        return new DelegatingAuthenticationFailureHandler(handlers,
+                new ForwardAuthenticationFailureHandler("/auth/login-error"));
     }
 
+    // Один и тот же кэширующий сервис используют вход по форме и remember-me
     @Bean
     public UserDetailsService userDetailsService() {
-        return new AppUserDetailsService(userRepository);
+        CachingUserDetailsService service = new CachingUserDetailsService(new AppUserDetailsService(userRepository));
+        service.setUserCache(appUserCache);
+        return service;
     }
 }
\ No newline at end of file
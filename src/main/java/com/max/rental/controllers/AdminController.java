@@ -7,6 +7,7 @@ import com.max.rental.models.entities.User;
 import com.max.rental.repositories.BookingRepository;
 import com.max.rental.repositories.ListingRepository;
 import com.max.rental.repositories.UserRepository;
+import com.max.rental.security.AppUserCache;
 import com.max.rental.services.ReviewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +29,7 @@ public class AdminController {
     private final ListingRepository listingRepository;
     private final BookingRepository bookingRepository;
     private final ReviewService reviewService;
+    private final AppUserCache appUserCache;
 
     @GetMapping
     @Transactional(readOnly = true)
@@ -145,7 +147,12 @@ public class AdminController {
     @PostMapping("/users/{id}/delete")
     public String deleteUser(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
+            String email = userRepository.findById(id).map(User::getEmail).orElse(null);
             userRepository.deleteById(id);
+            if (email != null) {
+                // Иначе удалённый пользователь ещё до TTL кэша входил бы по remember-me
+                appUserCache.evict(email);
+            }
             redirectAttributes.addFlashAttribute("successMessage", "Пользователь удалён");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Ошибка удаления: " + e.getMessage());
@@ -2,6 +2,7 @@ package com.max.rental.controllers;
 
 import com.max.rental.dto.auth.UserLoginDto;
 import com.max.rental.dto.auth.UserRegistrationDto;
+import com.max.rental.security.PasswordHashingBusyException;
 import com.max.rental.services.AuthService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -67,6 +68,9 @@ public class AuthController {
             redirectAttributes.addFlashAttribute("successMessage",
                     "Регистрация успешна! Теперь вы можете войти.");
             return "redirect:/auth/login";
+        } catch (PasswordHashingBusyException e) {
+            // Отдаётся как 503 через GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             log.error("Ошибка регистрации: {}", e.getMessage());
             redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
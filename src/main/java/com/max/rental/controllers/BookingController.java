@@ -1,8 +1,13 @@
 package com.max.rental.controllers;
 
+import com.max.rental.dto.CursorPageDto;
+import com.max.rental.dto.booking.BookingHistoryDto;
 import com.max.rental.dto.booking.BookingRequestDto;
 import com.max.rental.dto.booking.PriceCalculationDto;
+import com.max.rental.dto.booking.PriceQuoteDto;
+import com.max.rental.dto.booking.PriceQuoteRequestDto;
 import com.max.rental.services.BookingService;
+import com.max.rental.services.PriceQuoteService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Controller
 @RequestMapping("/bookings")
@@ -19,10 +25,17 @@ import java.time.LocalDate;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final PriceQuoteService priceQuoteService;
 
     @GetMapping("/history")
-    public String getBookingHistory(Model model) {
-        model.addAttribute("bookings", bookingService.getBookingHistory());
+    public String getBookingHistory(@RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "20") int size,
+                                    Model model) {
+        CursorPageDto<BookingHistoryDto> page = bookingService.getBookingHistoryPage(cursor, size);
+        model.addAttribute("bookings", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("firstPage", cursor == null || cursor.isBlank());
+        model.addAttribute("size", size);
         return "booking-history";
     }
 
@@ -57,10 +70,16 @@ public class BookingController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
         try {
-            PriceCalculationDto priceCalculation = bookingService.calculatePrice(listingId, startDate, endDate);
+            PriceCalculationDto priceCalculation = priceQuoteService.quote(listingId, startDate, endDate);
             return ResponseEntity.ok(priceCalculation);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/quotes")
+    @ResponseBody
+    public List<PriceQuoteDto> quotePrices(@RequestBody List<PriceQuoteRequestDto> requests) {
+        return priceQuoteService.quoteAll(requests);
+    }
+}
@@ -1,9 +1,14 @@
 package com.max.rental.controllers;
 
+import com.max.rental.dto.CursorPageDto;
 import com.max.rental.dto.listing.ListingDetailsDto;
 import com.max.rental.dto.listing.ListingFilterDto;
 import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.dto.review.ReviewDto;
+import com.max.rental.models.enums.EnumListingSortOrder;
+import com.max.rental.services.FavoriteService;
 import com.max.rental.services.ListingService;
+import com.max.rental.services.ReviewService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -11,10 +16,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
-
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 @Controller
 @RequestMapping("/listings")
@@ -22,6 +24,8 @@ import java.util.stream.Collectors;
 public class ListingController {
 
     private final ListingService listingService;
+    private final ReviewService reviewService;
+    private final FavoriteService favoriteService;
 
     @GetMapping("/{id}")
     public String getListingDetails(@PathVariable Long id, Model model) {
@@ -30,57 +34,34 @@ public class ListingController {
         return "listing-details";
     }
 
+    /**
+     * Следующие страницы отзывов для страницы объявления (JSON).
+     */
+    @GetMapping("/{id}/reviews")
+    @ResponseBody
+    public CursorPageDto<ReviewDto> getListingReviews(@PathVariable Long id,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "10") int size) {
+        return reviewService.getListingReviewsPage(id, cursor, size);
+    }
+
     @GetMapping
     public String getListings(ListingFilterDto filterDto,
                               @RequestParam(required = false) String sortBy,
-                              @RequestParam(defaultValue = "0") int page,
+                              @RequestParam(required = false) String cursor,
                               @RequestParam(defaultValue = "9") int size,
                               Model model) {
-        List<ListingSummaryDto> listings = listingService.searchListings(filterDto);
-
-        if (sortBy != null && !sortBy.isEmpty()) {
-            listings = applySorting(listings, sortBy);
-        }
-
-        int totalListings = listings.size();
-        int totalPages = (int) Math.ceil((double) totalListings / size);
+        CursorPageDto<ListingSummaryDto> page = listingService.searchListingsPage(
+                filterDto, EnumListingSortOrder.fromParam(sortBy), cursor, size);
 
-        if (page < 0) page = 0;
-        if (page >= totalPages && totalPages > 0) page = totalPages - 1;
-
-        int fromIndex = page * size;
-        int toIndex = Math.min(fromIndex + size, totalListings);
-
-        List<ListingSummaryDto> paginatedListings = totalListings > 0
-            ? listings.subList(fromIndex, toIndex)
-            : listings;
-
-        model.addAttribute("listings", paginatedListings);
+        model.addAttribute("listings", page.getItems());
+        // Отметки избранного для всей страницы - из кэшированного множества, без запросов по карточкам
+        model.addAttribute("favoriteIds", favoriteService.getCurrentUserFavoriteIds());
         model.addAttribute("filter", filterDto);
         model.addAttribute("sortBy", sortBy);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", totalPages);
-        model.addAttribute("totalListings", totalListings);
+        model.addAttribute("size", size);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("firstPage", cursor == null || cursor.isEmpty());
         return "listings";
     }
-
-    private List<ListingSummaryDto> applySorting(List<ListingSummaryDto> listings, String sortBy) {
-        switch (sortBy) {
-            case "price_asc":
-                return listings.stream()
-                        .sorted(Comparator.comparing(ListingSummaryDto::getPricePerNight))
-                        .collect(Collectors.toList());
-            case "price_desc":
-                return listings.stream()
-                        .sorted(Comparator.comparing(ListingSummaryDto::getPricePerNight).reversed())
-                        .collect(Collectors.toList());
-            case "rating_desc":
-                return listings.stream()
-                        .sorted(Comparator.comparing(ListingSummaryDto::getRating,
-                                Comparator.nullsLast(Comparator.reverseOrder())))
-                        .collect(Collectors.toList());
-            default:
-                return listings;
-        }
-    }
-}
\ No newline at end of file
+}
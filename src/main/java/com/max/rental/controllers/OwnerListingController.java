@@ -3,10 +3,13 @@ package com.max.rental.controllers;
 import com.max.rental.dto.booking.OwnerBookingDto;
 import com.max.rental.dto.listing.ListingCreateDto;
 import com.max.rental.dto.listing.ListingEditDto;
+import com.max.rental.dto.listing.OwnerDashboardDto;
 import com.max.rental.dto.listing.OwnerListingDto;
+import com.max.rental.dto.listing.PriceRuleDto;
 import com.max.rental.models.enums.EnumListingStatus;
 import com.max.rental.repositories.PropertyTypeRepository;
 import com.max.rental.services.OwnerListingService;
+import com.max.rental.services.PricingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -21,25 +24,23 @@ import java.util.List;
 public class OwnerListingController {
 
     private final OwnerListingService ownerListingService;
+    private final PricingService pricingService;
     private final PropertyTypeRepository propertyTypeRepository;
 
     @GetMapping
     public String getMyListings(@RequestParam(required = false) String status, Model model) {
-        List<OwnerListingDto> listings;
-
+        EnumListingStatus enumStatus = null;
         if (status != null && !status.isEmpty()) {
             try {
-                EnumListingStatus enumStatus = EnumListingStatus.valueOf(status.toUpperCase());
-                listings = ownerListingService.getMyListingsByStatus(enumStatus);
+                enumStatus = EnumListingStatus.valueOf(status.toUpperCase());
             } catch (IllegalArgumentException e) {
-                listings = ownerListingService.getMyListings();
+                enumStatus = null;
             }
-        } else {
-            listings = ownerListingService.getMyListings();
         }
 
-        model.addAttribute("listings", listings);
-        model.addAttribute("stats", ownerListingService.getOwnerStats());
+        OwnerDashboardDto dashboard = ownerListingService.getDashboard();
+        model.addAttribute("listings", dashboard.listingsWithStatus(enumStatus));
+        model.addAttribute("stats", dashboard.getStats());
         model.addAttribute("currentStatus", status);
         return "owner/my-listings";
     }
@@ -118,6 +119,45 @@ public class OwnerListingController {
         }
     }
 
+    @GetMapping("/{id}/pricing")
+    public String viewPricing(@PathVariable Long id, Model model) {
+        try {
+            model.addAttribute("rules", pricingService.getRules(id));
+            model.addAttribute("listingId", id);
+            model.addAttribute("listingTitle", ownerListingService.getListingTitle(id));
+            model.addAttribute("rule", new PriceRuleDto());
+            return "owner/listing-pricing";
+        } catch (Exception e) {
+            return "redirect:/owner/listings";
+        }
+    }
+
+    @PostMapping("/{id}/pricing")
+    public String addPriceRule(@PathVariable Long id,
+                               @ModelAttribute PriceRuleDto dto,
+                               RedirectAttributes redirectAttributes) {
+        try {
+            pricingService.addRule(id, dto);
+            redirectAttributes.addFlashAttribute("successMessage", "Правило цены добавлено!");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/owner/listings/" + id + "/pricing";
+    }
+
+    @PostMapping("/{id}/pricing/{ruleId}/delete")
+    public String deletePriceRule(@PathVariable Long id,
+                                  @PathVariable Long ruleId,
+                                  RedirectAttributes redirectAttributes) {
+        try {
+            pricingService.deleteRule(id, ruleId);
+            redirectAttributes.addFlashAttribute("successMessage", "Правило цены удалено.");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/owner/listings/" + id + "/pricing";
+    }
+
     @PostMapping("/{id}/activate")
     public String activateListing(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
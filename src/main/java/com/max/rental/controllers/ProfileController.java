@@ -1,6 +1,5 @@
 package com.max.rental.controllers;
 
-import com.max.rental.dto.booking.BookingHistoryDto;
 import com.max.rental.dto.profile.ProfileDto;
 import com.max.rental.dto.profile.ProfileUpdateDto;
 import com.max.rental.services.ProfileService;
@@ -12,8 +11,6 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
-
 @Controller
 @RequestMapping("/profile")
 @RequiredArgsConstructor
@@ -58,9 +55,7 @@ public class ProfileController {
     }
 
     @GetMapping("/bookings")
-    public String getBookingHistory(Model model) {
-        List<BookingHistoryDto> bookings = profileService.getBookingHistory();
-        model.addAttribute("bookings", bookings);
-        return "booking-history";
+    public String getBookingHistory() {
+        return "redirect:/bookings/history";
     }
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package com.max.rental.controllers;
 
 import com.max.rental.models.entities.Booking;
 import com.max.rental.models.entities.Review;
-import com.max.rental.models.entities.User;
 import com.max.rental.security.CurrentUserService;
 import com.max.rental.services.ReviewService;
 import lombok.RequiredArgsConstructor;
@@ -23,21 +22,21 @@ public class ReviewController {
 
     @GetMapping
     public String getAllReviews(Model model) {
-        User currentUser = currentUserService.getCurrentUser();
-        model.addAttribute("isAdmin", currentUser.isAdmin());
+        boolean isAdmin = currentUserService.isCurrentUserAdmin();
+        model.addAttribute("isAdmin", isAdmin);
 
-        if (currentUser.isAdmin()) {
+        if (isAdmin) {
             List<Review> reviews = reviewService.getAllReviews();
             model.addAttribute("reviews", reviews);
             model.addAttribute("pageTitle", "Все отзывы");
             return "reviews/list";
-        } else if (currentUser.isOwner()) {
-            List<Review> reviews = reviewService.getOwnerReviews(currentUser.getId());
+        } else if (currentUserService.isCurrentUserOwner()) {
+            List<Review> reviews = reviewService.getOwnerReviews(currentUserService.getCurrentUserId());
             model.addAttribute("reviews", reviews);
             model.addAttribute("pageTitle", "Отзывы на мои объявления");
             return "reviews/list";
         } else {
-            List<Review> reviews = reviewService.getTenantReviews(currentUser.getId());
+            List<Review> reviews = reviewService.getTenantReviews(currentUserService.getCurrentUserId());
             model.addAttribute("reviews", reviews);
             model.addAttribute("pageTitle", "Мои отзывы");
             return "reviews/list";
@@ -2,11 +2,13 @@ package com.max.rental.dto.booking;
 
 import com.max.rental.models.enums.EnumBookingStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
+@NoArgsConstructor
 public class BookingHistoryDto {
     private Long id;
     private Long listingId;
@@ -18,4 +20,18 @@ public class BookingHistoryDto {
     private EnumBookingStatus status;
     private boolean hasReview;
     private boolean canLeaveReview;
-}
\ No newline at end of file
+
+    public BookingHistoryDto(Long id, Long listingId, String listingTitle, String city,
+                             LocalDate startDate, LocalDate endDate, BigDecimal totalPrice,
+                             EnumBookingStatus status, Boolean hasReview) {
+        this.id = id;
+        this.listingId = listingId;
+        this.listingTitle = listingTitle;
+        this.city = city;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalPrice = totalPrice;
+        this.status = status;
+        this.hasReview = Boolean.TRUE.equals(hasReview);
+    }
+}
@@ -0,0 +1,21 @@
+package com.max.rental.dto.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Результат одной позиции пакетного расчёта: либо {@code price}, либо {@code error}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteDto {
+    private Long listingId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private PriceCalculationDto price;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.max.rental.dto.booking;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteRequestDto {
+    private Long listingId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
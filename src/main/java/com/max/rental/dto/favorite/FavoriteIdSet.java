@@ -0,0 +1,42 @@
+package com.max.rental.dto.favorite;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Неизменяемое множество id избранных объявлений пользователя: отсортированный
+ * long[], проверка - двоичным поиском. Кэшируется целиком, см. FavoriteIdsCache.
+ */
+public final class FavoriteIdSet {
+
+    public static final FavoriteIdSet EMPTY = new FavoriteIdSet(new long[0]);
+
+    private final long[] ids;
+
+    private FavoriteIdSet(long[] ids) {
+        this.ids = ids;
+    }
+
+    public static FavoriteIdSet of(Collection<Long> listingIds) {
+        return fromSorted(listingIds.stream().mapToLong(Long::longValue).sorted().distinct().toArray());
+    }
+
+    /**
+     * {@code ids} должны быть отсортированы по возрастанию и не повторяться; массив не копируется.
+     */
+    public static FavoriteIdSet fromSorted(long[] ids) {
+        return ids.length == 0 ? EMPTY : new FavoriteIdSet(ids);
+    }
+
+    public boolean contains(Long listingId) {
+        return listingId != null && Arrays.binarySearch(ids, listingId) >= 0;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long get(int index) {
+        return ids[index];
+    }
+}
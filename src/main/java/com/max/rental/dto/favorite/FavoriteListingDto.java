@@ -1,11 +1,13 @@
 package com.max.rental.dto.favorite;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class FavoriteListingDto {
 
     private Long listingId;
@@ -17,4 +19,18 @@ public class FavoriteListingDto {
     private String propertyType;
     private Double averageRating;
     private LocalDateTime addedAt;
-}
\ No newline at end of file
+
+    public FavoriteListingDto(Long listingId, String title, String description, BigDecimal pricePerNight,
+                              String city, String district, String propertyType,
+                              Double averageRating, LocalDateTime addedAt) {
+        this.listingId = listingId;
+        this.title = title;
+        this.description = description;
+        this.pricePerNight = pricePerNight;
+        this.city = city;
+        this.district = district;
+        this.propertyType = propertyType;
+        this.averageRating = averageRating;
+        this.addedAt = addedAt;
+    }
+}
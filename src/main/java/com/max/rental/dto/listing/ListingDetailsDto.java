@@ -1,5 +1,6 @@
 package com.max.rental.dto.listing;
 
+import com.max.rental.dto.review.RatingHistogramDto;
 import com.max.rental.dto.review.ReviewDto;
 import lombok.Data;
 
@@ -26,7 +27,11 @@ public class ListingDetailsDto {
     private Double ownerRating;
 
     private Double averageRating;
+
+    // Только первая страница отзывов, следующие подгружаются по reviewsNextCursor
     private List<ReviewDto> reviews;
+    private String reviewsNextCursor;
+    private RatingHistogramDto ratingHistogram;
 
     private boolean isAvailableForBooking;
 
@@ -35,6 +40,9 @@ public class ListingDetailsDto {
     private boolean isFavorite;
 
     public Integer getReviewCount() {
+        if (ratingHistogram != null) {
+            return (int) ratingHistogram.getTotal();
+        }
         return reviews != null ? reviews.size() : 0;
     }
 
@@ -54,4 +62,42 @@ public class ListingDetailsDto {
     private Boolean hasKitchen;
     private Boolean hasAirConditioning;
     private Boolean hasBalcony;
-}
\ No newline at end of file
+
+    /**
+     * Поверхностная копия для наложения признаков текущего пользователя
+     * на общий экземпляр из кэша. Список отзывов разделяется.
+     */
+    public ListingDetailsDto copy() {
+        ListingDetailsDto copy = new ListingDetailsDto();
+        copy.id = id;
+        copy.title = title;
+        copy.description = description;
+        copy.pricePerNight = pricePerNight;
+        copy.city = city;
+        copy.district = district;
+        copy.propertyType = propertyType;
+        copy.roomCount = roomCount;
+        copy.constructionYear = constructionYear;
+        copy.rules = rules;
+        copy.floor = floor;
+        copy.totalFloors = totalFloors;
+        copy.ownerId = ownerId;
+        copy.ownerFullName = ownerFullName;
+        copy.ownerRating = ownerRating;
+        copy.averageRating = averageRating;
+        copy.reviews = reviews;
+        copy.reviewsNextCursor = reviewsNextCursor;
+        copy.ratingHistogram = ratingHistogram;
+        copy.isAvailableForBooking = isAvailableForBooking;
+        copy.isCurrentUserOwner = isCurrentUserOwner;
+        copy.isFavorite = isFavorite;
+        copy.area = area;
+        copy.hasWifi = hasWifi;
+        copy.hasWashingMachine = hasWashingMachine;
+        copy.hasParking = hasParking;
+        copy.hasKitchen = hasKitchen;
+        copy.hasAirConditioning = hasAirConditioning;
+        copy.hasBalcony = hasBalcony;
+        return copy;
+    }
+}
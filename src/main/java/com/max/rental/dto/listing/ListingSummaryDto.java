@@ -1,9 +1,11 @@
 package com.max.rental.dto.listing;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Data
+@NoArgsConstructor
 public class ListingSummaryDto {
     private Long id;
     private String title;
@@ -13,4 +15,19 @@ public class ListingSummaryDto {
     private String district;
     private String type;
     private Double rating = 0.0;
-}
\ No newline at end of file
+
+    /**
+     * Конструктор для проекций ListingRepository (SUMMARY_SELECT).
+     */
+    public ListingSummaryDto(Long id, String title, String description, BigDecimal pricePerNight,
+                             String city, String district, String type, Double rating) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.pricePerNight = pricePerNight;
+        this.city = city;
+        this.district = district;
+        this.type = type;
+        this.rating = rating;
+    }
+}
@@ -0,0 +1,29 @@
+package com.max.rental.dto.listing;
+
+import com.max.rental.models.enums.EnumListingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Кабинет владельца: все его объявления со счётчиками и сводка по статусам.
+ * Число активных бронирований зависит от даты, поэтому она хранится вместе со снимком.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerDashboardDto {
+    private List<OwnerListingDto> listings;
+    private OwnerStatsDto stats;
+    private LocalDate date;
+
+    public List<OwnerListingDto> listingsWithStatus(EnumListingStatus status) {
+        if (status == null) {
+            return listings;
+        }
+        return listings.stream().filter(listing -> listing.getStatus() == status).toList();
+    }
+}
@@ -2,11 +2,13 @@ package com.max.rental.dto.listing;
 
 import com.max.rental.models.enums.EnumListingStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class OwnerListingDto {
 
     private Long id;
@@ -33,4 +35,30 @@ public class OwnerListingDto {
     private int reviewCount;
 
     private LocalDateTime createdAt;
-}
\ No newline at end of file
+
+    /**
+     * Конструктор для проекции объявлений владельца (ListingRepository.OWNER_SUMMARY_SELECT).
+     */
+    public OwnerListingDto(Long id, String title, String description, BigDecimal pricePerNight,
+                           String city, String district, String propertyType,
+                           Integer roomCount, Integer floor, Integer totalFloors,
+                           EnumListingStatus status, Double averageRating, LocalDateTime createdAt,
+                           Long totalBookings, Long activeBookings, Long reviewCount) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.pricePerNight = pricePerNight;
+        this.city = city;
+        this.district = district;
+        this.propertyType = propertyType;
+        this.roomCount = roomCount;
+        this.floor = floor;
+        this.totalFloors = totalFloors;
+        this.status = status;
+        this.averageRating = averageRating;
+        this.createdAt = createdAt;
+        this.totalBookings = totalBookings.intValue();
+        this.activeBookings = activeBookings.intValue();
+        this.reviewCount = reviewCount.intValue();
+    }
+}
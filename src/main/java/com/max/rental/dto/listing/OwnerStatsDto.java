@@ -0,0 +1,13 @@
+package com.max.rental.dto.listing;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class OwnerStatsDto {
+    private long totalListings;
+    private long activeListings;
+    private long draftListings;
+    private long inactiveListings;
+}
@@ -0,0 +1,26 @@
+package com.max.rental.dto.listing;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class PriceRuleDto {
+
+    private Long id;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    // Дни недели 1-7 (понедельник - воскресенье); пустой список - любой день
+    private List<Integer> daysOfWeek = new ArrayList<>();
+
+    private BigDecimal pricePerNight;
+}
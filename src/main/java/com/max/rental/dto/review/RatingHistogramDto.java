@@ -0,0 +1,26 @@
+package com.max.rental.dto.review;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Распределение оценок объявления: counts.get(0) - число оценок 1, counts.get(4) - оценок 5.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingHistogramDto {
+    private List<Long> counts;
+    private long total;
+
+    public long getCount(int rating) {
+        return counts != null && rating >= 1 && rating <= counts.size() ? counts.get(rating - 1) : 0;
+    }
+
+    public int getPercent(int rating) {
+        return total > 0 ? (int) Math.round(getCount(rating) * 100.0 / total) : 0;
+    }
+}
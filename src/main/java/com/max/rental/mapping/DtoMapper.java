@@ -0,0 +1,30 @@
+package com.max.rental.mapping;
+
+import java.util.Set;
+
+/**
+ * Явное отображение сущности в DTO без рефлексии. Перечень заполняемых свойств
+ * проверяется при старте ({@link DtoMapperRegistry}): новое поле DTO, которое
+ * никто не заполняет, останавливает запуск приложения.
+ */
+public interface DtoMapper<S, T> {
+
+    Class<S> sourceType();
+
+    Class<T> targetType();
+
+    /**
+     * Свойства DTO, которые заполняет {@link #map}.
+     */
+    Set<String> mappedProperties();
+
+    /**
+     * Свойства DTO, которые маппер намеренно не трогает: их дозаполняет вызывающий
+     * код, либо у сущности нет для них источника.
+     */
+    default Set<String> skippedProperties() {
+        return Set.of();
+    }
+
+    T map(S source);
+}
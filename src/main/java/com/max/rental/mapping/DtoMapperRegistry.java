@@ -0,0 +1,68 @@
+package com.max.rental.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+
+import java.beans.PropertyDescriptor;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Проверяет при старте, что каждый {@link DtoMapper} покрывает все записываемые
+ * свойства своего DTO и не ссылается на несуществующие, а пары сущность-DTO не повторяются.
+ */
+@Slf4j
+@Component
+public class DtoMapperRegistry {
+
+    private final Map<String, DtoMapper<?, ?>> mappers = new LinkedHashMap<>();
+
+    public DtoMapperRegistry(List<DtoMapper<?, ?>> mappers) {
+        List<String> errors = new ArrayList<>();
+        for (DtoMapper<?, ?> mapper : mappers) {
+            String pair = mapper.sourceType().getSimpleName() + " -> " + mapper.targetType().getSimpleName();
+            if (this.mappers.putIfAbsent(pair, mapper) != null) {
+                errors.add(pair + ": больше одного маппера");
+                continue;
+            }
+            errors.addAll(validate(pair, mapper));
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Некорректная конфигурация мапперов DTO:\n" + String.join("\n", errors));
+        }
+        log.info("Проверено мапперов DTO: {}", this.mappers.size());
+    }
+
+    public Set<String> registeredPairs() {
+        return Collections.unmodifiableSet(mappers.keySet());
+    }
+
+    private static List<String> validate(String pair, DtoMapper<?, ?> mapper) {
+        Set<String> writable = Arrays.stream(BeanUtils.getPropertyDescriptors(mapper.targetType()))
+                .filter(pd -> pd.getWriteMethod() != null)
+                .map(PropertyDescriptor::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        Set<String> covered = new HashSet<>(mapper.mappedProperties());
+        covered.addAll(mapper.skippedProperties());
+
+        List<String> errors = new ArrayList<>();
+        Set<String> unmapped = new TreeSet<>(writable);
+        unmapped.removeAll(covered);
+        if (!unmapped.isEmpty()) {
+            errors.add(pair + ": не заполняются свойства " + unmapped);
+        }
+        Set<String> unknown = new TreeSet<>(covered);
+        unknown.removeAll(writable);
+        if (!unknown.isEmpty()) {
+            errors.add(pair + ": в DTO нет свойств " + unknown);
+        }
+        Set<String> both = new TreeSet<>(mapper.mappedProperties());
+        both.retainAll(mapper.skippedProperties());
+        if (!both.isEmpty()) {
+            errors.add(pair + ": свойства одновременно заполняются и пропускаются " + both);
+        }
+        return errors;
+    }
+}
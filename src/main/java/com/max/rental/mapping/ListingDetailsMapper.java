@@ -0,0 +1,73 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.listing.ListingDetailsDto;
+import com.max.rental.dto.review.RatingHistogramDto;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.entities.RatingStats;
+import com.max.rental.models.entities.User;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class ListingDetailsMapper implements DtoMapper<Listing, ListingDetailsDto> {
+
+    @Override
+    public Class<Listing> sourceType() {
+        return Listing.class;
+    }
+
+    @Override
+    public Class<ListingDetailsDto> targetType() {
+        return ListingDetailsDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("id", "title", "description", "pricePerNight", "city", "district", "propertyType",
+                "roomCount", "constructionYear", "rules", "floor", "totalFloors",
+                "ownerId", "ownerFullName", "ownerRating", "averageRating", "ratingHistogram");
+    }
+
+    @Override
+    public Set<String> skippedProperties() {
+        // Страницу отзывов и признаки текущего пользователя заполняет ListingService;
+        // площади и удобств в модели объявления пока нет
+        return Set.of("reviews", "reviewsNextCursor", "availableForBooking", "currentUserOwner", "favorite",
+                "area", "hasWifi", "hasWashingMachine", "hasParking", "hasKitchen",
+                "hasAirConditioning", "hasBalcony");
+    }
+
+    @Override
+    public ListingDetailsDto map(Listing listing) {
+        ListingDetailsDto dto = new ListingDetailsDto();
+        dto.setId(listing.getId());
+        dto.setTitle(listing.getTitle());
+        dto.setDescription(listing.getDescription());
+        dto.setPricePerNight(listing.getPricePerNight());
+        if (listing.getAddress() != null) {
+            dto.setCity(listing.getAddress().getCity());
+            dto.setDistrict(listing.getAddress().getDistrict());
+        }
+        if (listing.getPropertyType() != null) {
+            dto.setPropertyType(listing.getPropertyType().getType());
+        }
+        dto.setRoomCount(listing.getRoomCount());
+        dto.setConstructionYear(listing.getConstructionYear());
+        dto.setRules(listing.getRules());
+        dto.setFloor(listing.getFloor());
+        dto.setTotalFloors(listing.getTotalFloors());
+
+        User owner = listing.getOwner();
+        if (owner != null) {
+            dto.setOwnerId(owner.getId());
+            dto.setOwnerFullName(owner.getFullName());
+            dto.setOwnerRating(owner.getOwnerRating());
+        }
+        dto.setAverageRating(listing.getAverageRating());
+
+        RatingStats stats = listing.getRatingStats();
+        dto.setRatingHistogram(new RatingHistogramDto(stats.getCounts(), stats.getCount()));
+        return dto;
+    }
+}
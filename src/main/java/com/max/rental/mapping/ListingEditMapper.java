@@ -0,0 +1,50 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.listing.ListingEditDto;
+import com.max.rental.models.entities.Listing;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class ListingEditMapper implements DtoMapper<Listing, ListingEditDto> {
+
+    @Override
+    public Class<Listing> sourceType() {
+        return Listing.class;
+    }
+
+    @Override
+    public Class<ListingEditDto> targetType() {
+        return ListingEditDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("id", "title", "description", "pricePerNight", "propertyType", "city", "district",
+                "roomCount", "floor", "totalFloors", "constructionYear", "rules", "status");
+    }
+
+    @Override
+    public ListingEditDto map(Listing listing) {
+        ListingEditDto dto = new ListingEditDto();
+        dto.setId(listing.getId());
+        dto.setTitle(listing.getTitle());
+        dto.setDescription(listing.getDescription());
+        dto.setPricePerNight(listing.getPricePerNight());
+        if (listing.getPropertyType() != null) {
+            dto.setPropertyType(listing.getPropertyType().getType());
+        }
+        if (listing.getAddress() != null) {
+            dto.setCity(listing.getAddress().getCity());
+            dto.setDistrict(listing.getAddress().getDistrict());
+        }
+        dto.setRoomCount(listing.getRoomCount());
+        dto.setFloor(listing.getFloor());
+        dto.setTotalFloors(listing.getTotalFloors());
+        dto.setConstructionYear(listing.getConstructionYear());
+        dto.setRules(listing.getRules());
+        dto.setStatus(listing.getStatus().name());
+        return dto;
+    }
+}
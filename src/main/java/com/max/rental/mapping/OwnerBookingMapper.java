@@ -0,0 +1,51 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.booking.OwnerBookingDto;
+import com.max.rental.models.entities.Booking;
+import com.max.rental.models.entities.User;
+import org.springframework.stereotype.Component;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+
+@Component
+public class OwnerBookingMapper implements DtoMapper<Booking, OwnerBookingDto> {
+
+    @Override
+    public Class<Booking> sourceType() {
+        return Booking.class;
+    }
+
+    @Override
+    public Class<OwnerBookingDto> targetType() {
+        return OwnerBookingDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("id", "renterId", "renterName", "renterEmail", "renterPhone",
+                "startDate", "endDate", "nights", "totalPrice", "status", "createdAt");
+    }
+
+    @Override
+    public OwnerBookingDto map(Booking booking) {
+        OwnerBookingDto dto = new OwnerBookingDto();
+        dto.setId(booking.getId());
+
+        User renter = booking.getRenter();
+        if (renter != null) {
+            dto.setRenterId(renter.getId());
+            dto.setRenterName(renter.getFullName());
+            dto.setRenterEmail(renter.getEmail());
+            dto.setRenterPhone(renter.getPhone());
+        }
+
+        dto.setStartDate(booking.getStartDate());
+        dto.setEndDate(booking.getEndDate());
+        dto.setNights(ChronoUnit.DAYS.between(booking.getStartDate(), booking.getEndDate()));
+        dto.setTotalPrice(booking.getTotalPrice());
+        dto.setStatus(booking.getStatus());
+        dto.setCreatedAt(booking.getCreatedAt());
+        return dto;
+    }
+}
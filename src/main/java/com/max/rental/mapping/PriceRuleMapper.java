@@ -0,0 +1,45 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.listing.PriceRuleDto;
+import com.max.rental.models.entities.PriceRule;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class PriceRuleMapper implements DtoMapper<PriceRule, PriceRuleDto> {
+
+    @Override
+    public Class<PriceRule> sourceType() {
+        return PriceRule.class;
+    }
+
+    @Override
+    public Class<PriceRuleDto> targetType() {
+        return PriceRuleDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("id", "startDate", "endDate", "daysOfWeek", "pricePerNight");
+    }
+
+    @Override
+    public PriceRuleDto map(PriceRule rule) {
+        PriceRuleDto dto = new PriceRuleDto();
+        dto.setId(rule.getId());
+        dto.setStartDate(rule.getStartDate());
+        dto.setEndDate(rule.getEndDate());
+        List<Integer> days = new ArrayList<>();
+        for (int day = 1; day <= 7; day++) {
+            if ((rule.getDaysOfWeek() & (1 << (day - 1))) != 0) {
+                days.add(day);
+            }
+        }
+        dto.setDaysOfWeek(days);
+        dto.setPricePerNight(rule.getPricePerNight());
+        return dto;
+    }
+}
@@ -0,0 +1,46 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.profile.ProfileDto;
+import com.max.rental.models.entities.User;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class ProfileMapper implements DtoMapper<User, ProfileDto> {
+
+    @Override
+    public Class<User> sourceType() {
+        return User.class;
+    }
+
+    @Override
+    public Class<ProfileDto> targetType() {
+        return ProfileDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("id", "email", "firstName", "lastName", "phone", "role", "ownerRating", "createdAt");
+    }
+
+    @Override
+    public Set<String> skippedProperties() {
+        // Счётчики берутся из репозиториев в ProfileService
+        return Set.of("totalBookings", "favoritesCount");
+    }
+
+    @Override
+    public ProfileDto map(User user) {
+        ProfileDto dto = new ProfileDto();
+        dto.setId(user.getId());
+        dto.setEmail(user.getEmail());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setPhone(user.getPhone());
+        dto.setRole(user.getRoles().isEmpty() ? "GUEST" : user.getRoles().get(0).getName().name());
+        dto.setOwnerRating(user.getOwnerRating());
+        dto.setCreatedAt(user.getCreatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,38 @@
+package com.max.rental.mapping;
+
+import com.max.rental.dto.review.ReviewDto;
+import com.max.rental.models.entities.Review;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class ReviewMapper implements DtoMapper<Review, ReviewDto> {
+
+    @Override
+    public Class<Review> sourceType() {
+        return Review.class;
+    }
+
+    @Override
+    public Class<ReviewDto> targetType() {
+        return ReviewDto.class;
+    }
+
+    @Override
+    public Set<String> mappedProperties() {
+        return Set.of("guestName", "rating", "comment", "reviewDate");
+    }
+
+    @Override
+    public ReviewDto map(Review review) {
+        ReviewDto dto = new ReviewDto();
+        dto.setGuestName(review.getGuest().getFirstName());
+        dto.setRating(review.getRating());
+        dto.setComment(review.getComment());
+        if (review.getCreatedAt() != null) {
+            dto.setReviewDate(review.getCreatedAt().toLocalDate());
+        }
+        return dto;
+    }
+}
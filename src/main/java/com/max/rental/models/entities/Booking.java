@@ -8,7 +8,10 @@ import java.time.LocalDate;
 import java.util.Objects;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_renter_start", columnList = "renter_id, start_date"),
+        @Index(name = "idx_bookings_renter_end", columnList = "renter_id, end_date")
+})
 public class Booking extends BaseEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,57 @@
+package com.max.rental.models.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Счётчики популярности города: активные объявления и подтверждённые бронирования.
+ * Обновляются вместе с изменениями объявлений и бронирований, сверяются фоновой задачей.
+ */
+@Entity
+@Table(name = "city_stats", indexes = {
+        @Index(name = "idx_city_stats_popularity", columnList = "popularity_score")
+})
+public class CityStats {
+
+    @Id
+    private String city;
+
+    @Column(name = "listing_count", nullable = false)
+    private Long listingCount;
+
+    @Column(name = "booking_count", nullable = false)
+    private Long bookingCount;
+
+    // listing_count + 2 * booking_count, как в PopularCityDto.getPopularityScore()
+    @Column(name = "popularity_score", nullable = false)
+    private Long popularityScore;
+
+    public CityStats() {
+    }
+
+    public CityStats(String city, Long listingCount, Long bookingCount) {
+        this.city = city;
+        setCounts(listingCount, bookingCount);
+    }
+
+    public void setCounts(Long listingCount, Long bookingCount) {
+        this.listingCount = listingCount;
+        this.bookingCount = bookingCount;
+        this.popularityScore = listingCount + 2 * bookingCount;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public Long getListingCount() {
+        return listingCount;
+    }
+
+    public Long getBookingCount() {
+        return bookingCount;
+    }
+
+    public Long getPopularityScore() {
+        return popularityScore;
+    }
+}
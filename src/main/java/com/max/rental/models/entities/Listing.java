@@ -8,7 +8,9 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "listings")
+@Table(name = "listings", indexes = {
+        @Index(name = "idx_listings_rating", columnList = "average_rating DESC, id")
+})
 public class Listing extends BaseEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -32,8 +34,12 @@ public class Listing extends BaseEntity {
     @Column(name = "price_per_night", precision = 10, scale = 2)
     private BigDecimal pricePerNight;
 
-    @Column(name = "average_rating")
-    private Double averageRating;
+    // Поддерживается вместе с ratingStats; задаётся напрямую только при создании
+    @Column(name = "average_rating", nullable = false, updatable = false)
+    private Double averageRating = 0.0;
+
+    @Embedded
+    private RatingStats ratingStats = new RatingStats();
 
     @Column(name = "room_count")
     private Integer roomCount;
@@ -115,6 +121,10 @@ public class Listing extends BaseEntity {
         this.averageRating = averageRating;
     }
 
+    public RatingStats getRatingStats() {
+        return ratingStats;
+    }
+
     public Integer getRoomCount() {
         return roomCount;
     }
@@ -0,0 +1,75 @@
+package com.max.rental.models.entities;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Правило цены за ночь. Сезонное правило задаёт период (границы включительно),
+ * недельное - только дни недели; сезонные правила важнее недельных, среди
+ * правил одного вида действует добавленное позже.
+ */
+@Entity
+@Table(name = "price_rules", indexes = {
+        @Index(name = "idx_price_rules_listing", columnList = "listing_id")
+})
+public class PriceRule extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "listing_id", nullable = false)
+    private Listing listing;
+
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    // Бит 0 - понедельник, бит 6 - воскресенье; 0 означает любой день
+    @Column(name = "days_of_week", nullable = false)
+    private int daysOfWeek;
+
+    @Column(name = "price_per_night", precision = 10, scale = 2, nullable = false)
+    private BigDecimal pricePerNight;
+
+    public Listing getListing() {
+        return listing;
+    }
+
+    public void setListing(Listing listing) {
+        this.listing = listing;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public int getDaysOfWeek() {
+        return daysOfWeek;
+    }
+
+    public void setDaysOfWeek(int daysOfWeek) {
+        this.daysOfWeek = daysOfWeek;
+    }
+
+    public BigDecimal getPricePerNight() {
+        return pricePerNight;
+    }
+
+    public void setPricePerNight(BigDecimal pricePerNight) {
+        this.pricePerNight = pricePerNight;
+    }
+}
@@ -0,0 +1,58 @@
+package com.max.rental.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.util.List;
+
+/**
+ * Накопленные оценки: число, сумма и распределение по звёздам. Колонки меняются
+ * только атомарными UPDATE в транзакции отзыва и задачей сверки, поэтому Hibernate
+ * их не пишет - сохранение устаревшей сущности не затрёт чужой инкремент.
+ */
+@Embeddable
+public class RatingStats {
+
+    @Column(name = "rating_count", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long count;
+
+    @Column(name = "rating_sum", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long sum;
+
+    @Column(name = "rating_1", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long ones;
+
+    @Column(name = "rating_2", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long twos;
+
+    @Column(name = "rating_3", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long threes;
+
+    @Column(name = "rating_4", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long fours;
+
+    @Column(name = "rating_5", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long fives;
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Число оценок по звёздам: элемент 0 - оценки 1, элемент 4 - оценки 5.
+     */
+    public List<Long> getCounts() {
+        return List.of(ones, twos, threes, fours, fives);
+    }
+}
@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.util.Objects;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "idx_reviews_booking", columnList = "booking_id")
+})
 public class Review extends BaseEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -27,9 +27,29 @@ public class User extends BaseEntity {
 
     private String phone;
 
-    @Column(name = "owner_rating")
+    // Средняя оценка объявлений владельца, поддерживается вместе с ownerRatingStats
+    @Column(name = "owner_rating", updatable = false)
     private Double ownerRating = 0.0;
 
+    @Embedded
+    @AttributeOverrides({
+            @AttributeOverride(name = "count", column = @Column(name = "owner_rating_count",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "sum", column = @Column(name = "owner_rating_sum",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "ones", column = @Column(name = "owner_rating_1",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "twos", column = @Column(name = "owner_rating_2",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "threes", column = @Column(name = "owner_rating_3",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "fours", column = @Column(name = "owner_rating_4",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0")),
+            @AttributeOverride(name = "fives", column = @Column(name = "owner_rating_5",
+                    insertable = false, updatable = false, columnDefinition = "bigint not null default 0"))
+    })
+    private RatingStats ownerRatingStats = new RatingStats();
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "users_roles",
@@ -118,6 +138,10 @@ public class User extends BaseEntity {
         this.ownerRating = ownerRating;
     }
 
+    public RatingStats getOwnerRatingStats() {
+        return ownerRatingStats;
+    }
+
     public List<Role> getRoles() {
         return roles;
     }
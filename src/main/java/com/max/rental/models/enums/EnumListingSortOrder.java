@@ -0,0 +1,29 @@
+package com.max.rental.models.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum EnumListingSortOrder {
+    RELEVANCE(""),
+    PRICE_ASC("price_asc"),
+    PRICE_DESC("price_desc"),
+    RATING_DESC("rating_desc");
+
+    private final String param;
+
+    EnumListingSortOrder(String param) {
+        this.param = param;
+    }
+
+    public static EnumListingSortOrder fromParam(String param) {
+        if (param == null || param.isEmpty()) {
+            return RELEVANCE;
+        }
+        for (EnumListingSortOrder order : values()) {
+            if (order.param.equals(param)) {
+                return order;
+            }
+        }
+        return RELEVANCE;
+    }
+}
@@ -1,17 +1,55 @@
 package com.max.rental.repositories;
 
+import com.max.rental.dto.booking.BookingHistoryDto;
 import com.max.rental.models.entities.Booking;
 import com.max.rental.models.enums.EnumBookingStatus;
+import com.max.rental.search.BookedRange;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    List<Booking> findAllByRenterId(Long renterId);
+    long countByRenterId(Long renterId);
+
+    String HISTORY_SELECT = "SELECT new com.max.rental.dto.booking.BookingHistoryDto(" +
+            "b.id, l.id, l.title, a.city, b.startDate, b.endDate, b.totalPrice, b.status, " +
+            "CASE WHEN EXISTS (SELECT r.id FROM Review r WHERE r.booking.id = b.id) THEN true ELSE false END) " +
+            "FROM Booking b " +
+            "JOIN b.listing l " +
+            "LEFT JOIN l.address a " +
+            "WHERE b.renter.id = :renterId ";
+
+    // Предстоящие: заезд сегодня или позже, ближайшие первыми
+    @Query(HISTORY_SELECT +
+            "AND b.startDate >= :today " +
+            "AND (:afterId IS NULL OR b.startDate > :afterDate " +
+            "  OR (b.startDate = :afterDate AND b.id > :afterId)) " +
+            "ORDER BY b.startDate ASC, b.id ASC")
+    List<BookingHistoryDto> findUpcomingHistory(@Param("renterId") Long renterId,
+                                                @Param("today") LocalDate today,
+                                                @Param("afterDate") LocalDate afterDate,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    // Прошедшие: по дате выезда от новых к старым
+    @Query(HISTORY_SELECT +
+            "AND b.startDate < :today " +
+            "AND (:afterId IS NULL OR b.endDate < :afterDate " +
+            "  OR (b.endDate = :afterDate AND b.id < :afterId)) " +
+            "ORDER BY b.endDate DESC, b.id DESC")
+    List<BookingHistoryDto> findPastHistory(@Param("renterId") Long renterId,
+                                            @Param("today") LocalDate today,
+                                            @Param("afterDate") LocalDate afterDate,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
 
     List<Booking> findAllByListingIdOrderByStartDateDesc(Long listingId);
 
@@ -19,12 +57,31 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     long countByListingIdAndStatus(Long listingId, EnumBookingStatus status);
 
-    List<Booking> findAllByListingId(Long listingId);
 
+    @Query("SELECT b.listing.id FROM Booking b WHERE b.id = :id")
+    Optional<Long> findListingIdById(@Param("id") Long id);
 
     @Query("SELECT b FROM Booking b JOIN FETCH b.listing WHERE b.renter.id = :renterId")
     List<Booking> findAllByRenterIdWithListing(Long renterId);
 
+    @Query("SELECT new com.max.rental.search.BookedRange(b.listing.id, b.startDate, b.endDate) " +
+            "FROM Booking b " +
+            "WHERE b.status <> 'CANCELLED' AND b.endDate > :from")
+    List<BookedRange> findActiveBookedRanges(@Param("from") LocalDate from);
+
+    @Query("SELECT new com.max.rental.search.BookedRange(b.listing.id, b.startDate, b.endDate) " +
+            "FROM Booking b " +
+            "WHERE b.listing.id = :listingId AND b.status <> 'CANCELLED' AND b.endDate > :from")
+    List<BookedRange> findActiveBookedRangesByListingId(@Param("listingId") Long listingId,
+                                                        @Param("from") LocalDate from);
+
+    // Те же условия, что у ограничения bookings_no_overlap
+    @Query("SELECT COUNT(b) > 0 FROM Booking b " +
+            "WHERE b.listing.id = :listingId AND b.status <> 'CANCELLED' " +
+            "AND b.startDate < :endDate AND b.endDate > :startDate")
+    boolean existsActiveOverlap(@Param("listingId") Long listingId,
+                                @Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
 
     @Query("SELECT a.city as city, COUNT(b) as count " +
             "FROM Booking b JOIN b.listing l JOIN l.address a " +
@@ -0,0 +1,51 @@
+package com.max.rental.repositories;
+
+import com.max.rental.dto.listing.PopularCityDto;
+import com.max.rental.models.entities.CityStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CityStatsRepository extends JpaRepository<CityStats, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO city_stats (city, listing_count, booking_count, popularity_score) " +
+            "VALUES (:city, :listingDelta, :bookingDelta, :listingDelta + 2 * :bookingDelta) " +
+            "ON CONFLICT (city) DO UPDATE SET " +
+            "listing_count = city_stats.listing_count + EXCLUDED.listing_count, " +
+            "booking_count = city_stats.booking_count + EXCLUDED.booking_count, " +
+            "popularity_score = city_stats.popularity_score + EXCLUDED.popularity_score",
+            nativeQuery = true)
+    int addCounts(@Param("city") String city,
+                  @Param("listingDelta") long listingDelta,
+                  @Param("bookingDelta") long bookingDelta);
+
+    /**
+     * Блокирует все строки до пересчёта: дельты {@link #addCounts}, закоммиченные раньше,
+     * войдут в агрегаты, а остальные дождутся коммита сверки и лягут поверх неё.
+     */
+    @Query(value = "SELECT city FROM city_stats ORDER BY city FOR UPDATE", nativeQuery = true)
+    List<String> lockAll();
+
+    // Строку нового города могла только что вставить параллельная дельта - её не перезаписываем
+    @Modifying
+    @Query(value = "INSERT INTO city_stats (city, listing_count, booking_count, popularity_score) " +
+            "VALUES (:city, :listingCount, :bookingCount, :listingCount + 2 * :bookingCount) " +
+            "ON CONFLICT (city) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("city") String city,
+                       @Param("listingCount") long listingCount,
+                       @Param("bookingCount") long bookingCount);
+
+    @Query("SELECT new com.max.rental.dto.listing.PopularCityDto(c.city, c.listingCount, c.bookingCount) " +
+            "FROM CityStats c " +
+            "WHERE c.popularityScore > 0 " +
+            "ORDER BY c.popularityScore DESC, c.city ASC")
+    List<PopularCityDto> findTopCities(Pageable pageable);
+}
@@ -1,8 +1,11 @@
 package com.max.rental.repositories;
 
+import com.max.rental.dto.favorite.FavoriteListingDto;
 import com.max.rental.models.entities.Favorite;
 import com.max.rental.models.entities.FavoriteId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +15,20 @@ public interface FavoriteRepository extends JpaRepository<Favorite, FavoriteId>
 
     List<Favorite> findAllByRenterId(Long renterId);
 
+    @Query("SELECT new com.max.rental.dto.favorite.FavoriteListingDto(" +
+            "l.id, l.title, " + ListingRepository.SUMMARY_DESCRIPTION + ", l.pricePerNight, " +
+            "a.city, a.district, pt.type, l.averageRating, f.createdAt) " +
+            "FROM Favorite f " +
+            "JOIN f.listing l " +
+            "JOIN l.address a " +
+            "JOIN l.propertyType pt " +
+            "WHERE f.renterId = :renterId " +
+            "ORDER BY f.createdAt DESC")
+    List<FavoriteListingDto> findFavoriteListings(@Param("renterId") Long renterId);
+
+    @Query("SELECT f.listingId FROM Favorite f WHERE f.renterId = :renterId")
+    List<Long> findListingIdsByRenterId(@Param("renterId") Long renterId);
+
     boolean existsByRenterIdAndListingId(Long renterId, Long listingId);
 
     void deleteByRenterIdAndListingId(Long renterId, Long listingId);
@@ -2,15 +2,20 @@
 // ОБНОВЛЕННЫЙ ФАЙЛ - добавлены методы для владельца
 package com.max.rental.repositories;
 
+import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.dto.listing.OwnerListingDto;
 import com.max.rental.models.entities.Listing;
-import com.max.rental.models.enums.EnumListingStatus;
+import com.max.rental.search.IndexedListing;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,54 +26,226 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
             "AND (:city IS NULL OR lower(a.city) LIKE :city) " +
             "AND (:district IS NULL OR lower(a.district) LIKE :district) " +
             "AND (:type IS NULL OR pt.type = :type) " +
-            "AND (:minPrice IS NULL OR l.pricePerNight >= :minPrice) " +
-            "AND (:maxPrice IS NULL OR l.pricePerNight <= :maxPrice) " +
-            "AND (:floor IS NULL OR l.floor = :floor) ";
+            "AND (:floor IS NULL OR l.floor = :floor) " +
+            // Объявления с правилами цен проверяются по средней цене на даты, см. StayPriceFilter
+            "AND l.id NOT IN :priceExcludedIds " +
+            "AND (l.id IN :priceIncludedIds " +
+            "  OR ((:minPrice IS NULL OR l.pricePerNight >= :minPrice) " +
+            "  AND (:maxPrice IS NULL OR l.pricePerNight <= :maxPrice))) ";
 
-    @Query("SELECT l FROM Listing l " +
+    // Описание в карточке обрезается в запросе, чтобы не читать TEXT целиком
+    String SUMMARY_DESCRIPTION = "CASE WHEN LENGTH(l.description) > 100 " +
+            "THEN CONCAT(SUBSTRING(l.description, 1, 100), '...') ELSE l.description END";
+
+    String SUMMARY_SELECT = "SELECT new com.max.rental.dto.listing.ListingSummaryDto(" +
+            "l.id, l.title, " + SUMMARY_DESCRIPTION + ", l.pricePerNight, " +
+            "a.city, a.district, pt.type, COALESCE(l.averageRating, 0.0)) " +
+            "FROM Listing l " +
             "JOIN l.address a " +
-            "JOIN l.propertyType pt " +
-            "WHERE " + BASE_FILTER_CONDITION)
-    List<Listing> findWithBaseFilters(
+            "JOIN l.propertyType pt ";
+
+    String PAGE_SELECT = SUMMARY_SELECT +
+            "WHERE " + BASE_FILTER_CONDITION +
+            "AND (:startDate IS NULL OR :endDate IS NULL OR NOT EXISTS (" +
+            "  SELECT 1 FROM Booking b " +
+            "  WHERE b.listing.id = l.id " +
+            "  AND b.status = 'CONFIRMED' " +
+            "  AND (b.startDate < :endDate AND b.endDate > :startDate)" +
+            ")) ";
+
+    @Query(PAGE_SELECT +
+            "AND (:afterId IS NULL OR l.id > :afterId) " +
+            "ORDER BY l.id ASC")
+    List<ListingSummaryDto> findPageOrderById(
             @Param("city") String city,
             @Param("district") String district,
             @Param("type") String type,
             @Param("minPrice") BigDecimal minPrice,
             @Param("maxPrice") BigDecimal maxPrice,
-            @Param("floor") Integer floor
+            @Param("floor") Integer floor,
+            @Param("priceIncludedIds") Collection<Long> priceIncludedIds,
+            @Param("priceExcludedIds") Collection<Long> priceExcludedIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable
     );
 
-    @Query("SELECT l FROM Listing l " +
-            "JOIN l.address a " +
-            "JOIN l.propertyType pt " +
-            "WHERE " + BASE_FILTER_CONDITION +
-            "AND NOT EXISTS (" +
-            "  SELECT 1 FROM Booking b " +
-            "  WHERE b.listing.id = l.id " +
-            "  AND b.status = 'CONFIRMED' " +
-            "  AND (b.startDate < :endDate AND b.endDate > :startDate)" +
-            ")")
-    List<Listing> findWithAllFilters(
+    @Query(PAGE_SELECT +
+            "AND (:afterId IS NULL OR l.pricePerNight > :afterPrice " +
+            "  OR (l.pricePerNight = :afterPrice AND l.id > :afterId)) " +
+            "ORDER BY l.pricePerNight ASC, l.id ASC")
+    List<ListingSummaryDto> findPageOrderByPriceAsc(
+            @Param("city") String city,
+            @Param("district") String district,
+            @Param("type") String type,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("floor") Integer floor,
+            @Param("priceIncludedIds") Collection<Long> priceIncludedIds,
+            @Param("priceExcludedIds") Collection<Long> priceExcludedIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterPrice") BigDecimal afterPrice,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    @Query(PAGE_SELECT +
+            "AND (:afterId IS NULL OR l.pricePerNight < :afterPrice " +
+            "  OR (l.pricePerNight = :afterPrice AND l.id > :afterId)) " +
+            "ORDER BY l.pricePerNight DESC, l.id ASC")
+    List<ListingSummaryDto> findPageOrderByPriceDesc(
+            @Param("city") String city,
+            @Param("district") String district,
+            @Param("type") String type,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("floor") Integer floor,
+            @Param("priceIncludedIds") Collection<Long> priceIncludedIds,
+            @Param("priceExcludedIds") Collection<Long> priceExcludedIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterPrice") BigDecimal afterPrice,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    // Ключ сортировки и курсора - тот же COALESCE, что и рейтинг в карточке
+    @Query(PAGE_SELECT +
+            "AND (:afterId IS NULL OR COALESCE(l.averageRating, 0.0) < :afterRating " +
+            "  OR (COALESCE(l.averageRating, 0.0) = :afterRating AND l.id > :afterId)) " +
+            "ORDER BY COALESCE(l.averageRating, 0.0) DESC NULLS LAST, l.id ASC")
+    List<ListingSummaryDto> findPageOrderByRatingDesc(
             @Param("city") String city,
             @Param("district") String district,
             @Param("type") String type,
             @Param("minPrice") BigDecimal minPrice,
             @Param("maxPrice") BigDecimal maxPrice,
             @Param("floor") Integer floor,
+            @Param("priceIncludedIds") Collection<Long> priceIncludedIds,
+            @Param("priceExcludedIds") Collection<Long> priceExcludedIds,
             @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
+            @Param("endDate") LocalDate endDate,
+            @Param("afterRating") Double afterRating,
+            @Param("afterId") Long afterId,
+            Pageable pageable
     );
 
+    String INDEX_SELECT = "SELECT new com.max.rental.search.IndexedListing(" +
+            "l.id, a.city, a.district, pt.type, l.floor, l.pricePerNight) " +
+            "FROM Listing l " +
+            "JOIN l.address a " +
+            "JOIN l.propertyType pt " +
+            "WHERE l.status = 'ACTIVE' ";
+
+    @Query(INDEX_SELECT)
+    List<IndexedListing> findAllActiveForIndex();
+
+    @Query(INDEX_SELECT + "AND l.id = :id")
+    Optional<IndexedListing> findActiveForIndexById(@Param("id") Long id);
 
-    List<Listing> findAllByOwnerIdOrderByCreatedAtDesc(Long ownerId);
+    @Query(SUMMARY_SELECT + "WHERE l.id IN :ids")
+    List<ListingSummaryDto> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 
-    List<Listing> findAllByOwnerIdAndStatusOrderByCreatedAtDesc(Long ownerId, EnumListingStatus status);
+    // Бронирования считаются одним проходом с группировкой, число отзывов берётся из накопленных оценок
+    String OWNER_SUMMARY_SELECT = "SELECT new com.max.rental.dto.listing.OwnerListingDto(" +
+            "l.id, l.title, " + SUMMARY_DESCRIPTION + ", l.pricePerNight, a.city, a.district, pt.type, " +
+            "l.roomCount, l.floor, l.totalFloors, l.status, l.averageRating, l.createdAt, " +
+            "COUNT(b), " +
+            "SUM(CASE WHEN b.status = 'CONFIRMED' AND b.endDate > :today THEN 1 ELSE 0 END), " +
+            "l.ratingStats.count) " +
+            "FROM Listing l " +
+            "JOIN l.address a " +
+            "JOIN l.propertyType pt " +
+            "LEFT JOIN Booking b ON b.listing = l " +
+            "WHERE l.owner.id = :ownerId ";
+
+    @Query(OWNER_SUMMARY_SELECT +
+            "GROUP BY l.id, a.id, pt.id " +
+            "ORDER BY l.createdAt DESC")
+    List<OwnerListingDto> findOwnerSummaries(@Param("ownerId") Long ownerId,
+                                             @Param("today") LocalDate today);
+
+    @Query(OWNER_SUMMARY_SELECT +
+            "AND l.id = :id " +
+            "GROUP BY l.id, a.id, pt.id")
+    Optional<OwnerListingDto> findOwnerSummary(@Param("id") Long id,
+                                               @Param("ownerId") Long ownerId,
+                                               @Param("today") LocalDate today);
 
     Optional<Listing> findByIdAndOwnerId(Long id, Long ownerId);
 
-    long countByOwnerId(Long ownerId);
+    @Query("SELECT l FROM Listing l " +
+            "JOIN FETCH l.address " +
+            "JOIN FETCH l.propertyType " +
+            "JOIN FETCH l.owner " +
+            "WHERE l.id = :id")
+    Optional<Listing> findDetailsById(@Param("id") Long id);
+
+    // Блокировка до конца текущей транзакции, см. ListingLockManager
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:listingId)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("listingId") long listingId);
+
+    @Query("SELECT l.pricePerNight FROM Listing l WHERE l.id = :id")
+    Optional<BigDecimal> findPricePerNightById(@Param("id") Long id);
 
-    long countByOwnerIdAndStatus(Long ownerId, EnumListingStatus status);
+    // Строка объявления блокируется до конца транзакции отзыва, параллельные оценки не теряются
+    @Modifying
+    @Query(value = "UPDATE listings SET " +
+            "rating_count = rating_count + :delta, " +
+            "rating_sum = rating_sum + :delta * :rating, " +
+            "rating_1 = rating_1 + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+            "rating_2 = rating_2 + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+            "rating_3 = rating_3 + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+            "rating_4 = rating_4 + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+            "rating_5 = rating_5 + CASE WHEN :rating = 5 THEN :delta ELSE 0 END, " +
+            "average_rating = CASE WHEN rating_count + :delta > 0 " +
+            "  THEN CAST(rating_sum + :delta * :rating AS double precision) / (rating_count + :delta) ELSE 0 END " +
+            "WHERE id = :id",
+            nativeQuery = true)
+    int addRating(@Param("id") long id, @Param("rating") int rating, @Param("delta") int delta);
+
+    @Query("SELECT l.id FROM Listing l ORDER BY l.id")
+    List<Long> findAllIdsOrderById();
+
+    @Query(value = "SELECT id FROM listings WHERE id BETWEEN :fromId AND :toId ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * Пересчитывает накопленные оценки объявлений из диапазона по таблице reviews и
+     * перезаписывает только расходящиеся строки. Строки должны быть заблокированы
+     * {@link #lockIdRange} в той же транзакции до вызова.
+     */
+    @Modifying
+    @Query(value = "UPDATE listings l SET " +
+            "rating_count = s.cnt, rating_sum = s.total, " +
+            "rating_1 = s.r1, rating_2 = s.r2, rating_3 = s.r3, rating_4 = s.r4, rating_5 = s.r5, " +
+            "average_rating = s.average " +
+            "FROM (SELECT l2.id, COUNT(r.id) AS cnt, COALESCE(SUM(r.rating), 0) AS total, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 1) AS r1, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 2) AS r2, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 3) AS r3, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 4) AS r4, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 5) AS r5, " +
+            "  CASE WHEN COUNT(r.id) > 0 THEN CAST(SUM(r.rating) AS double precision) / COUNT(r.id) " +
+            "    ELSE 0 END AS average " +
+            "  FROM listings l2 LEFT JOIN reviews r ON r.listing_id = l2.id " +
+            "  WHERE l2.id BETWEEN :fromId AND :toId GROUP BY l2.id) s " +
+            "WHERE l.id = s.id AND (l.rating_count <> s.cnt OR l.rating_sum <> s.total " +
+            "  OR l.rating_1 <> s.r1 OR l.rating_2 <> s.r2 OR l.rating_3 <> s.r3 " +
+            "  OR l.rating_4 <> s.r4 OR l.rating_5 <> s.r5 OR l.average_rating <> s.average)",
+            nativeQuery = true)
+    int repairRatingStats(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("SELECT l.id FROM Listing l WHERE l.owner.id = :ownerId")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+
+    @Query("SELECT l.status, COUNT(l) FROM Listing l " +
+            "WHERE l.owner.id = :ownerId " +
+            "GROUP BY l.status")
+    List<Object[]> countByOwnerIdGroupByStatus(@Param("ownerId") Long ownerId);
 
     @Query("SELECT a.city as city, COUNT(l) as count " +
             "FROM Listing l JOIN l.address a " +
@@ -78,4 +255,11 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
     List<Object[]> getCityStatistics();
 
     List<Listing> findByCreatedAtAfterOrderByCreatedAtDesc(java.time.LocalDateTime date);
+
+    @Query("SELECT l.id FROM Listing l " +
+            "LEFT JOIN Booking b ON b.listing = l AND b.status = 'CONFIRMED' AND b.createdAt >= :bookedSince " +
+            "WHERE l.status = 'ACTIVE' " +
+            "GROUP BY l.id, l.averageRating, l.createdAt " +
+            "ORDER BY COALESCE(l.averageRating, 0.0) DESC, COUNT(b) DESC, l.createdAt DESC, l.id DESC")
+    List<Long> findFeaturedIds(@Param("bookedSince") java.time.LocalDateTime bookedSince, Pageable pageable);
 }
\ No newline at end of file
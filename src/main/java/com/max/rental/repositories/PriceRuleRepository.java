@@ -0,0 +1,20 @@
+package com.max.rental.repositories;
+
+import com.max.rental.models.entities.PriceRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PriceRuleRepository extends JpaRepository<PriceRule, Long> {
+
+    @Query("SELECT r FROM PriceRule r JOIN FETCH r.listing ORDER BY r.listing.id, r.id")
+    List<PriceRule> findAllWithListing();
+
+    List<PriceRule> findByListingIdOrderByIdAsc(Long listingId);
+
+    Optional<PriceRule> findByIdAndListingId(Long id, Long listingId);
+}
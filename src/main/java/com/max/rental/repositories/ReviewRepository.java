@@ -1,11 +1,13 @@
 package com.max.rental.repositories;
 
 import com.max.rental.models.entities.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,6 +38,17 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
             "ORDER BY r.createdAt DESC")
     List<Review> findByListingOwnerIdOrderByCreatedAtDesc(@Param("ownerId") Long ownerId);
 
+    @Query("SELECT r FROM Review r " +
+            "JOIN FETCH r.guest " +
+            "WHERE r.listing.id = :listingId " +
+            "AND (:afterId IS NULL OR r.createdAt < :afterCreatedAt " +
+            "  OR (r.createdAt = :afterCreatedAt AND r.id < :afterId)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Review> findPageByListingId(@Param("listingId") Long listingId,
+                                     @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
     Optional<Review> findByBookingId(Long bookingId);
 
     @Query("SELECT r FROM Review r " +
@@ -2,6 +2,9 @@ package com.max.rental.repositories;
 
 import com.max.rental.models.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -13,4 +16,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     List<User> findByCreatedAtAfterOrderByCreatedAtDesc(LocalDateTime date);
+
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.email = :email")
+    int updatePasswordHash(@Param("email") String email, @Param("passwordHash") String passwordHash);
+
+    // Рейтинг владельца - по всем отзывам на его объявления, см. ListingRepository.addRating
+    @Modifying
+    @Query(value = "UPDATE users SET " +
+            "owner_rating_count = owner_rating_count + :delta, " +
+            "owner_rating_sum = owner_rating_sum + :delta * :rating, " +
+            "owner_rating_1 = owner_rating_1 + CASE WHEN :rating = 1 THEN :delta ELSE 0 END, " +
+            "owner_rating_2 = owner_rating_2 + CASE WHEN :rating = 2 THEN :delta ELSE 0 END, " +
+            "owner_rating_3 = owner_rating_3 + CASE WHEN :rating = 3 THEN :delta ELSE 0 END, " +
+            "owner_rating_4 = owner_rating_4 + CASE WHEN :rating = 4 THEN :delta ELSE 0 END, " +
+            "owner_rating_5 = owner_rating_5 + CASE WHEN :rating = 5 THEN :delta ELSE 0 END, " +
+            "owner_rating = CASE WHEN owner_rating_count + :delta > 0 " +
+            "  THEN CAST(owner_rating_sum + :delta * :rating AS double precision) / (owner_rating_count + :delta) " +
+            "  ELSE 0 END " +
+            "WHERE id = :id",
+            nativeQuery = true)
+    int addOwnerRating(@Param("id") long id, @Param("rating") int rating, @Param("delta") int delta);
+
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIdsOrderById();
+
+    @Query(value = "SELECT id FROM users WHERE id BETWEEN :fromId AND :toId ORDER BY id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * То же, что ListingRepository.repairRatingStats, для рейтинга владельцев.
+     */
+    @Modifying
+    @Query(value = "UPDATE users u SET " +
+            "owner_rating_count = s.cnt, owner_rating_sum = s.total, " +
+            "owner_rating_1 = s.r1, owner_rating_2 = s.r2, owner_rating_3 = s.r3, " +
+            "owner_rating_4 = s.r4, owner_rating_5 = s.r5, owner_rating = s.average " +
+            "FROM (SELECT o.id, COUNT(r.id) AS cnt, COALESCE(SUM(r.rating), 0) AS total, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 1) AS r1, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 2) AS r2, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 3) AS r3, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 4) AS r4, " +
+            "  COUNT(r.id) FILTER (WHERE r.rating = 5) AS r5, " +
+            "  CASE WHEN COUNT(r.id) > 0 THEN CAST(SUM(r.rating) AS double precision) / COUNT(r.id) " +
+            "    ELSE 0 END AS average " +
+            "  FROM users o " +
+            "  LEFT JOIN listings l ON l.owner_id = o.id " +
+            "  LEFT JOIN reviews r ON r.listing_id = l.id " +
+            "  WHERE o.id BETWEEN :fromId AND :toId GROUP BY o.id) s " +
+            "WHERE u.id = s.id AND (u.owner_rating_count <> s.cnt OR u.owner_rating_sum <> s.total " +
+            "  OR u.owner_rating_1 <> s.r1 OR u.owner_rating_2 <> s.r2 OR u.owner_rating_3 <> s.r3 " +
+            "  OR u.owner_rating_4 <> s.r4 OR u.owner_rating_5 <> s.r5 " +
+            "  OR u.owner_rating IS DISTINCT FROM s.average)",
+            nativeQuery = true)
+    int repairOwnerRatingStats(@Param("fromId") long fromId, @Param("toId") long toId);
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.max.rental.search;
+
+import com.max.rental.cache.CacheInvalidationBus;
+import com.max.rental.models.entities.Booking;
+import com.max.rental.repositories.BookingRepository;
+import com.max.rental.services.support.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Календарь занятости объявлений с точностью до дня. Для каждого объявления в
+ * memory-mapped файле хранится битовая карта ночей на горизонте HORIZON_DAYS от
+ * базовой даты; смещение записи вычисляется из id объявления, поэтому память кучи
+ * не растёт вместе с числом объявлений. Календарь перестраивается из таблицы
+ * bookings при старте и периодически сдвигает базовую дату.
+ * <p>
+ * Файл у каждого экземпляра приложения свой. Изменения бронирований рассылаются
+ * остальным узлам через {@link CacheInvalidationBus}, и те перечитывают занятость
+ * объявления из БД без блокировки календаря, сверяясь с {@link ChangeStamps}.
+ */
+@Slf4j
+@Component
+public class AvailabilityCalendar implements CacheInvalidationBus.LocalCacheListener {
+
+    private static final String BUS_NAME = "availabilityCalendar";
+    private static final int HORIZON_DAYS = 730;
+    private static final int WORDS_PER_LISTING = (HORIZON_DAYS + 63) / 64;
+    private static final int BYTES_PER_LISTING = WORDS_PER_LISTING * Long.BYTES;
+    private static final long MAX_LISTINGS = Integer.MAX_VALUE / BYTES_PER_LISTING;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int REBASE_AFTER_DAYS = 30;
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final BookingRepository bookingRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final Path directory;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeStamps changeStamps = new ChangeStamps();
+
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long capacity;
+    private LocalDate baseDate;
+    private volatile boolean ready;
+
+    public AvailabilityCalendar(BookingRepository bookingRepository,
+                                CacheInvalidationBus invalidationBus,
+                                @Value("${app.availability.dir:${java.io.tmpdir}}") String directory) {
+        this.bookingRepository = bookingRepository;
+        this.invalidationBus = invalidationBus;
+        this.directory = Path.of(directory);
+        invalidationBus.register(BUS_NAME, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            openEmpty();
+            baseDate = LocalDate.now();
+            changeStamps.reset();
+
+            List<BookedRange> ranges = bookingRepository.findActiveBookedRanges(baseDate);
+            for (BookedRange range : ranges) {
+                update(range.listingId(), range.startDate(), range.endDate(), true);
+            }
+            ready = true;
+            log.info("Календарь занятости построен: {} бронирований, файл {}", ranges.size(), file);
+        } catch (IOException e) {
+            log.error("Не удалось открыть файл календаря занятости {}", file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(cron = "0 5 0 * * *")
+    public void rebaseIfNeeded() {
+        if (baseDate != null && baseDate.plusDays(REBASE_AFTER_DAYS).isBefore(LocalDate.now())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Свободно ли объявление на ночи [startDate, endDate). Пустой Optional означает,
+     * что календарь не готов или интервал выходит за горизонт - ответ нужно получить из БД.
+     */
+    public Optional<Boolean> isAvailable(Long listingId, LocalDate startDate, LocalDate endDate) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int from = dayIndex(startDate);
+            int to = dayIndex(endDate);
+            if (!covers(from, to)) {
+                return Optional.empty();
+            }
+            return Optional.of(!anyBooked(listingId, from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оставляет из списка только объявления, свободные на ночи [startDate, endDate).
+     */
+    public Optional<List<Long>> filterAvailable(List<Long> listingIds, LocalDate startDate, LocalDate endDate) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int from = dayIndex(startDate);
+            int to = dayIndex(endDate);
+            if (!covers(from, to)) {
+                return Optional.empty();
+            }
+            List<Long> available = new ArrayList<>(listingIds.size());
+            for (Long listingId : listingIds) {
+                if (!anyBooked(listingId, from, to)) {
+                    available.add(listingId);
+                }
+            }
+            return Optional.of(available);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void onBookingCreated(Booking booking) {
+        scheduleUpdate(booking, true);
+    }
+
+    public void onBookingCancelled(Booking booking) {
+        scheduleUpdate(booking, false);
+    }
+
+    private void scheduleUpdate(Booking booking, boolean booked) {
+        Long listingId = booking.getListing().getId();
+        LocalDate startDate = booking.getStartDate();
+        LocalDate endDate = booking.getEndDate();
+
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                if (ready) {
+                    update(listingId, startDate, endDate, booked);
+                    changeStamps.touch(listingId);
+                }
+            } catch (IOException e) {
+                log.error("Не удалось обновить календарь занятости объявления {}", listingId, e);
+                ready = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            invalidationBus.publishEvict(BUS_NAME, listingId.toString());
+        });
+    }
+
+    /**
+     * Перечитывает занятость объявления из БД: по сообщениям других узлов
+     * и когда календарь разошёлся с таблицей bookings.
+     */
+    public void refresh(Long listingId) {
+        for (int attempt = 0; attempt < MAX_REFRESH_ATTEMPTS; attempt++) {
+            LocalDate from;
+            long stamp;
+            lock.readLock().lock();
+            try {
+                if (!ready) {
+                    return;
+                }
+                from = baseDate;
+                stamp = changeStamps.current(listingId);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            List<BookedRange> ranges = bookingRepository.findActiveBookedRangesByListingId(listingId, from);
+            if (applyIfUnchanged(listingId, ranges, stamp)) {
+                return;
+            }
+        }
+        // Каждое чтение обгоняло локальное изменение - оно и остаётся в календаре
+        log.debug("Занятость объявления {} менялась во время перечитывания, оставляем локальное состояние", listingId);
+    }
+
+    // Перестроение сбрасывает отметки, поэтому совпавшая отметка гарантирует и прежнюю базовую дату
+    private boolean applyIfUnchanged(Long listingId, List<BookedRange> ranges, long stamp) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return true;
+            }
+            if (changeStamps.current(listingId) != stamp) {
+                return false;
+            }
+            update(listingId, baseDate, baseDate.plusDays(HORIZON_DAYS), false);
+            for (BookedRange range : ranges) {
+                update(listingId, range.startDate(), range.endDate(), true);
+            }
+            changeStamps.touch(listingId);
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось обновить календарь занятости объявления {}", listingId, e);
+            ready = false;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void evictLocal(String key) {
+        refresh(Long.valueOf(key));
+    }
+
+    @Override
+    public void clearLocal() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            buffer = null;
+            if (channel != null) {
+                channel.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+                file = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openEmpty() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (file == null) {
+            // Уникальное имя: несколько экземпляров на одном хосте не делят отображение
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "housing-rental-availability-", ".bin");
+            file.toFile().deleteOnExit();
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        capacity = 0;
+        buffer = null;
+        ensureCapacity(INITIAL_CAPACITY - 1);
+    }
+
+    private void ensureCapacity(long listingId) throws IOException {
+        if (listingId < capacity) {
+            return;
+        }
+        if (listingId >= MAX_LISTINGS) {
+            throw new IOException("Id объявления " + listingId + " выходит за пределы файла календаря");
+        }
+        long newCapacity = Math.min(MAX_LISTINGS, Math.max(listingId + 1, capacity * 2));
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity * BYTES_PER_LISTING);
+        capacity = newCapacity;
+    }
+
+    private void update(Long listingId, LocalDate startDate, LocalDate endDate, boolean booked) throws IOException {
+        int from = Math.max(dayIndex(startDate), 0);
+        int to = Math.min(dayIndex(endDate), HORIZON_DAYS);
+        if (from >= to) {
+            return;
+        }
+        ensureCapacity(listingId);
+
+        int offset = (int) (listingId * BYTES_PER_LISTING);
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            int index = offset + word * Long.BYTES;
+            long mask = rangeMask(word, from, to);
+            long value = buffer.getLong(index);
+            buffer.putLong(index, booked ? value | mask : value & ~mask);
+        }
+    }
+
+    private boolean anyBooked(Long listingId, int from, int to) {
+        if (listingId >= capacity) {
+            return false;
+        }
+        int offset = (int) (listingId * BYTES_PER_LISTING);
+        for (int word = from >>> 6; word <= (to - 1) >>> 6; word++) {
+            if ((buffer.getLong(offset + word * Long.BYTES) & rangeMask(word, from, to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long rangeMask(int word, int from, int to) {
+        long mask = -1L;
+        if (word == from >>> 6) {
+            mask &= -1L << (from & 63);
+        }
+        if (word == (to - 1) >>> 6) {
+            mask &= -1L >>> (63 - ((to - 1) & 63));
+        }
+        return mask;
+    }
+
+    private boolean covers(int from, int to) {
+        return from >= 0 && to <= HORIZON_DAYS && from < to;
+    }
+
+    private int dayIndex(LocalDate date) {
+        long days = date.toEpochDay() - baseDate.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, days));
+    }
+}
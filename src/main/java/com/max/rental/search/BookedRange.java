@@ -0,0 +1,9 @@
+package com.max.rental.search;
+
+import java.time.LocalDate;
+
+/**
+ * Занятый интервал объявления: ночи с startDate включительно по endDate исключительно.
+ */
+public record BookedRange(Long listingId, LocalDate startDate, LocalDate endDate) {
+}
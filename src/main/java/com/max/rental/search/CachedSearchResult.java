@@ -0,0 +1,19 @@
+package com.max.rental.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Закэшированная страница поиска - только упорядоченные id объявлений
+ * и курсор следующей страницы.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedSearchResult {
+    private List<Long> listingIds;
+    private String nextCursor;
+}
@@ -0,0 +1,32 @@
+package com.max.rental.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Отметки локальных изменений по id объявления. Перечитывание из БД идёт без
+ * блокировки записи: отметка берётся до чтения, а результат применяется, только
+ * если она не сдвинулась, - иначе прочитанное могло оказаться старше локального
+ * изменения. Перестроение сдвигает отметки всех объявлений сразу.
+ * <p>
+ * Не потокобезопасен: читается под блокировкой чтения владельца, меняется под блокировкой записи.
+ */
+final class ChangeStamps {
+
+    private final Map<Long, Long> stamps = new HashMap<>();
+    private long counter;
+    private long epoch;
+
+    long current(Long listingId) {
+        return stamps.getOrDefault(listingId, epoch);
+    }
+
+    void touch(Long listingId) {
+        stamps.put(listingId, ++counter);
+    }
+
+    void reset() {
+        stamps.clear();
+        epoch = ++counter;
+    }
+}
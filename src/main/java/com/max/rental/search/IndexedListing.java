@@ -0,0 +1,27 @@
+package com.max.rental.search;
+
+import com.max.rental.models.entities.Listing;
+
+import java.math.BigDecimal;
+
+/**
+ * Снимок атрибутов активного объявления, по которым строится поисковый индекс.
+ */
+public record IndexedListing(Long id,
+                             String city,
+                             String district,
+                             String type,
+                             Integer floor,
+                             BigDecimal pricePerNight) {
+
+    public static IndexedListing from(Listing listing) {
+        return new IndexedListing(
+                listing.getId(),
+                listing.getAddress() != null ? listing.getAddress().getCity() : null,
+                listing.getAddress() != null ? listing.getAddress().getDistrict() : null,
+                listing.getPropertyType() != null ? listing.getPropertyType().getType() : null,
+                listing.getFloor(),
+                listing.getPricePerNight()
+        );
+    }
+}
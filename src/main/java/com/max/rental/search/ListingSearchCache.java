@@ -0,0 +1,287 @@
+package com.max.rental.search;
+
+import com.max.rental.cache.TwoLevelCache;
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.models.entities.Booking;
+import com.max.rental.models.enums.EnumListingSortOrder;
+import com.max.rental.services.support.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Двухуровневый кэш поиска: по отпечатку страницы хранится только список id и курсор
+ * следующей страницы, а карточки объявлений лежат в отдельном кэше по одной записи
+ * на объявление и читаются одним MGET. Перед Redis стоит локальный уровень {@link TwoLevelCache}.
+ * <p>
+ * Для каждой закэшированной страницы запоминаются зависимости её фильтра: тип жилья
+ * и, если заданы, даты. Изменение объявления или бронирования сбрасывает только
+ * те страницы, результат которых оно могло изменить.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ListingSearchCache {
+
+    private static final String DEPENDENCY_PREFIX = RedisCacheConfig.LISTING_SEARCH_CACHE + ":deps:";
+    private static final String DATED_DEPENDENCY = DEPENDENCY_PREFIX + "dated";
+    private static final String ANY_TYPE = "*";
+
+    private final CacheManager cacheManager;
+    private final PriceCalendar priceCalendar;
+    private final RedisConnectionFactory connectionFactory;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Возвращает страницу поиска из кэша, а при промахе загружает её через {@code loader}.
+     * Одновременные промахи по одной странице выполняют загрузку один раз на весь кластер.
+     * <p>
+     * Зависимости регистрируются до чтения из БД, чтобы инвалидация во время загрузки
+     * их увидела, и повторно после записи. Если при повторной регистрации страницы в
+     * зависимостях уже нет, инвалидация её сняла, пока шла загрузка, и только что
+     * записанное значение сбрасывается.
+     */
+    public CachedSearchResult getPage(SearchPageKey key, Supplier<CachedSearchResult> loader) {
+        String fingerprint = key.fingerprint();
+        TwoLevelCache cache = cache(RedisCacheConfig.LISTING_SEARCH_CACHE);
+        boolean[] loadedHere = {false};
+        CachedSearchResult page = cache.get(fingerprint, () -> {
+            trackDependencies(key.query(), fingerprint);
+            loadedHere[0] = true;
+            return loader.get();
+        });
+        if (loadedHere[0] && trackDependencies(key.query(), fingerprint)) {
+            cache.evict(fingerprint);
+            meterRegistry.counter("listing.search.cache.invalidations", "reason", "concurrent").increment();
+        }
+        return page;
+    }
+
+    /**
+     * Возвращает true, если страницы не было хотя бы в одной из её зависимостей.
+     */
+    private boolean trackDependencies(SearchQueryKey key, String fingerprint) {
+        try {
+            double expiresAt = System.currentTimeMillis() + RedisCacheConfig.LISTING_SEARCH_TTL.toMillis();
+            boolean added = trackDependency(typeDependency(key.type()), fingerprint, expiresAt);
+            if (key.hasDates()) {
+                added |= trackDependency(DATED_DEPENDENCY, fingerprint, expiresAt);
+            }
+            return added;
+        } catch (DataAccessException e) {
+            // Без зависимостей запись доживёт до TTL кэша поиска
+            log.warn("Не удалось зарегистрировать зависимости страницы поиска: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает закэшированные карточки для переданных id. Отсутствующих в кэше id в ответе нет.
+     */
+    public Map<Long, ListingSummaryDto> getSummaries(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        TwoLevelCache cache = cache(RedisCacheConfig.LISTING_SUMMARY_CACHE);
+        Map<Long, ListingSummaryDto> summaries = new HashMap<>();
+        List<Long> remoteIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (cache.getLocal(id) instanceof ListingSummaryDto dto) {
+                summaries.put(id, dto);
+            } else {
+                remoteIds.add(id);
+            }
+        }
+        if (remoteIds.isEmpty()) {
+            meterRegistry.counter("listing.summary.cache", "result", "hit").increment(ids.size());
+            return summaries;
+        }
+
+        RedisCache remote = cache.getRemote();
+        RedisCacheConfiguration config = remote.getCacheConfiguration();
+        String prefix = config.getKeyPrefixFor(remote.getName());
+
+        byte[][] keys = new byte[remoteIds.size()][];
+        for (int i = 0; i < remoteIds.size(); i++) {
+            keys[i] = ByteUtils.getBytes(config.getKeySerializationPair().write(prefix + remoteIds.get(i)));
+        }
+
+        List<byte[]> values;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            values = connection.stringCommands().mGet(keys);
+        }
+
+        if (values != null) {
+            for (int i = 0; i < remoteIds.size(); i++) {
+                byte[] value = values.get(i);
+                if (value == null) {
+                    continue;
+                }
+                Object summary = config.getValueSerializationPair().read(ByteBuffer.wrap(value));
+                if (summary instanceof ListingSummaryDto dto) {
+                    summaries.put(remoteIds.get(i), dto);
+                    cache.putLocal(remoteIds.get(i), dto);
+                }
+            }
+        }
+
+        meterRegistry.counter("listing.summary.cache", "result", "hit").increment(summaries.size());
+        meterRegistry.counter("listing.summary.cache", "result", "miss").increment(ids.size() - summaries.size());
+        log.debug("Карточки объявлений из кэша: {} из {}", summaries.size(), ids.size());
+        return summaries;
+    }
+
+    public void putSummaries(Collection<ListingSummaryDto> summaries) {
+        // Промах был и в Redis, так что копий на других узлах нет и рассылать нечего
+        TwoLevelCache cache = cache(RedisCacheConfig.LISTING_SUMMARY_CACHE);
+        for (ListingSummaryDto summary : summaries) {
+            cache.getRemote().put(summary.getId(), summary);
+            cache.putLocal(summary.getId(), summary);
+        }
+    }
+
+    /**
+     * Сбрасывает карточку одного объявления после коммита текущей транзакции.
+     */
+    public void evictSummary(Long listingId) {
+        AfterCommit.run(() -> cache(RedisCacheConfig.LISTING_SUMMARY_CACHE).evict(listingId));
+    }
+
+    /**
+     * Сбрасывает после коммита запросы, под которые объявление подходило до изменения
+     * или подходит после него. {@code before} равен null для нового объявления.
+     */
+    public void onListingChanged(IndexedListing before, IndexedListing after) {
+        Set<String> dependencies = new HashSet<>();
+        dependencies.add(typeDependency(null));
+        if (before != null) {
+            dependencies.add(typeDependency(SearchQueryKey.normalizeType(before.type())));
+        }
+        if (after != null) {
+            dependencies.add(typeDependency(SearchQueryKey.normalizeType(after.type())));
+        }
+
+        AfterCommit.run(() -> evictAffected(dependencies, "listing",
+                key -> (before != null && matches(key.query(), before))
+                        || (after != null && matches(key.query(), after))));
+    }
+
+    /**
+     * Сбрасывает после коммита запросы с датами, пересекающимися с бронированием,
+     * под которые подходит забронированное объявление. Запросы без дат бронирования не учитывают.
+     */
+    public void onBookingChanged(Booking booking) {
+        IndexedListing listing = IndexedListing.from(booking.getListing());
+        LocalDate from = booking.getStartDate();
+        LocalDate to = booking.getEndDate();
+
+        AfterCommit.run(() -> evictAffected(Set.of(DATED_DEPENDENCY), "booking",
+                key -> key.query().overlaps(from, to) && matches(key.query(), listing)));
+    }
+
+    /**
+     * Сбрасывает после коммита запросы с датами и границами цены, под которые объявление
+     * подходит по остальным условиям: правила цен меняют его среднюю цену на любые даты.
+     */
+    public void onPricingChanged(IndexedListing listing) {
+        AfterCommit.run(() -> evictAffected(Set.of(DATED_DEPENDENCY), "pricing",
+                key -> key.query().hasPriceBounds() && key.query().matchesIgnoringPrice(listing)));
+    }
+
+    /**
+     * Сбрасывает после коммита страницы с сортировкой по рейтингу, под фильтр которых
+     * подходит объявление: новый отзыв меняет его место в выдаче.
+     */
+    public void onRatingChanged(IndexedListing listing) {
+        Set<String> dependencies = Set.of(typeDependency(null),
+                typeDependency(SearchQueryKey.normalizeType(listing.type())));
+
+        AfterCommit.run(() -> evictAffected(dependencies, "rating",
+                key -> key.sortOrder() == EnumListingSortOrder.RATING_DESC
+                        && key.query().matchesIgnoringPrice(listing)));
+    }
+
+    private void evictAffected(Set<String> dependencies, String reason, Predicate<SearchPageKey> affected) {
+        try {
+            double now = System.currentTimeMillis();
+            Set<String> candidates = new HashSet<>();
+            for (String dependency : dependencies) {
+                Set<String> fingerprints = redisTemplate.opsForZSet()
+                        .rangeByScore(dependency, now, Double.POSITIVE_INFINITY);
+                if (fingerprints != null) {
+                    candidates.addAll(fingerprints);
+                }
+            }
+
+            TwoLevelCache cache = cache(RedisCacheConfig.LISTING_SEARCH_CACHE);
+            int evicted = 0;
+            for (String fingerprint : candidates) {
+                Optional<SearchPageKey> key = SearchPageKey.parse(fingerprint);
+                if (key.isPresent() && !affected.test(key.get())) {
+                    continue;
+                }
+                cache.evict(fingerprint);
+                untrack(fingerprint, key.map(SearchPageKey::query).orElse(null), dependencies);
+                evicted++;
+            }
+
+            meterRegistry.counter("listing.search.cache.invalidations", "reason", reason).increment(evicted);
+            log.debug("Инвалидация поиска ({}): сброшено {} из {} запросов", reason, evicted, candidates.size());
+        } catch (DataAccessException e) {
+            log.warn("Не удалось инвалидировать кэш поиска ({}): {}", reason, e.getMessage());
+        }
+    }
+
+    /**
+     * Подходит ли объявление под запрос с тем же ценовым правилом, что и поиск:
+     * объявления с правилами цен на даты запроса проверяются по средней цене проживания.
+     */
+    private boolean matches(SearchQueryKey key, IndexedListing listing) {
+        return key.matchesIgnoringPrice(listing)
+                && priceCalendar.fitsPriceFilter(listing.id(), listing.pricePerNight(),
+                key.startDate(), key.endDate(), key.minPrice(), key.maxPrice());
+    }
+
+    private boolean trackDependency(String dependency, String fingerprint, double expiresAt) {
+        Boolean added = redisTemplate.opsForZSet().add(dependency, fingerprint, expiresAt);
+        redisTemplate.opsForZSet().removeRangeByScore(dependency, 0, System.currentTimeMillis());
+        redisTemplate.expire(dependency, RedisCacheConfig.LISTING_SEARCH_TTL);
+        return Boolean.TRUE.equals(added);
+    }
+
+    private void untrack(String fingerprint, SearchQueryKey key, Set<String> dependencies) {
+        if (key == null) {
+            dependencies.forEach(dependency -> redisTemplate.opsForZSet().remove(dependency, fingerprint));
+            return;
+        }
+        redisTemplate.opsForZSet().remove(typeDependency(key.type()), fingerprint);
+        if (key.hasDates()) {
+            redisTemplate.opsForZSet().remove(DATED_DEPENDENCY, fingerprint);
+        }
+    }
+
+    private static String typeDependency(String type) {
+        return DEPENDENCY_PREFIX + "type:" + (type != null ? type : ANY_TYPE);
+    }
+
+    private TwoLevelCache cache(String name) {
+        return (TwoLevelCache) Objects.requireNonNull(cacheManager.getCache(name), name);
+    }
+}
@@ -0,0 +1,318 @@
+package com.max.rental.search;
+
+import com.max.rental.cache.CacheInvalidationBus;
+import com.max.rental.dto.listing.ListingFilterDto;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.enums.EnumListingStatus;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.services.support.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory индекс активных объявлений. Каждому объявлению выделяется плотный слот,
+ * по каждому значению атрибута хранится битовая карта слотов, а фильтр поиска
+ * сводится к пересечению карт. Изменения объявлений рассылаются остальным узлам
+ * через {@link CacheInvalidationBus}, и те перечитывают объявление из БД без
+ * блокировки индекса, сверяясь с {@link ChangeStamps}.
+ */
+@Slf4j
+@Component
+public class ListingSearchIndex implements CacheInvalidationBus.LocalCacheListener {
+
+    private static final String BUS_NAME = "listingSearchIndex";
+    private static final BigDecimal PRICE_BUCKET_SIZE = new BigDecimal("1000");
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final ListingRepository listingRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final List<IndexedListing> docs = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<String, BitSet> byCity = new HashMap<>();
+    private final Map<String, BitSet> byDistrict = new HashMap<>();
+    private final Map<String, BitSet> byType = new HashMap<>();
+    private final Map<Integer, BitSet> byFloor = new HashMap<>();
+    private final TreeMap<Long, BitSet> byPriceBucket = new TreeMap<>();
+    private final ChangeStamps changeStamps = new ChangeStamps();
+
+    private volatile boolean ready;
+
+    public ListingSearchIndex(ListingRepository listingRepository, CacheInvalidationBus invalidationBus) {
+        this.listingRepository = listingRepository;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.register(BUS_NAME, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            slotsById.clear();
+            docs.clear();
+            freeSlots.clear();
+            live.clear();
+            byCity.clear();
+            byDistrict.clear();
+            byType.clear();
+            byFloor.clear();
+            byPriceBucket.clear();
+            changeStamps.reset();
+
+            List<IndexedListing> active = listingRepository.findAllActiveForIndex();
+            active.forEach(this::put);
+            ready = true;
+            log.info("Поисковый индекс построен: {} активных объявлений", active.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Переносит текущее состояние объявления в индекс после коммита транзакции.
+     * Неактивные объявления из индекса удаляются.
+     */
+    public void onListingChanged(Listing listing) {
+        Long listingId = listing.getId();
+        IndexedListing doc = listing.getStatus() == EnumListingStatus.ACTIVE ? IndexedListing.from(listing) : null;
+
+        AfterCommit.run(() -> {
+            apply(listingId, doc);
+            invalidationBus.publishEvict(BUS_NAME, listingId.toString());
+        });
+    }
+
+    @Override
+    public void evictLocal(String key) {
+        Long listingId = Long.valueOf(key);
+        for (int attempt = 0; attempt < MAX_REFRESH_ATTEMPTS; attempt++) {
+            long stamp = stampOf(listingId);
+            IndexedListing doc = listingRepository.findActiveForIndexById(listingId).orElse(null);
+            if (applyIfUnchanged(listingId, doc, stamp)) {
+                return;
+            }
+        }
+        // Каждое чтение обгоняло локальное изменение - оно и остаётся в индексе
+        log.debug("Объявление {} менялось во время перечитывания, оставляем локальное состояние", listingId);
+    }
+
+    @Override
+    public void clearLocal() {
+        rebuild();
+    }
+
+    private void apply(Long listingId, IndexedListing doc) {
+        lock.writeLock().lock();
+        try {
+            replace(listingId, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean applyIfUnchanged(Long listingId, IndexedListing doc, long stamp) {
+        lock.writeLock().lock();
+        try {
+            if (changeStamps.current(listingId) != stamp) {
+                return false;
+            }
+            replace(listingId, doc);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long stampOf(Long listingId) {
+        lock.readLock().lock();
+        try {
+            return changeStamps.current(listingId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void replace(Long listingId, IndexedListing doc) {
+        if (doc != null) {
+            put(doc);
+        } else {
+            remove(listingId);
+        }
+        changeStamps.touch(listingId);
+    }
+
+    /**
+     * Возвращает подходящие под фильтр объявления по возрастанию id
+     * или пустой Optional, если индекс ещё не построен. Даты фильтра не учитываются.
+     */
+    public Optional<List<IndexedListing>> search(ListingFilterDto filter) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) live.clone();
+
+            String city = normalize(filter.getCity());
+            if (city != null) {
+                result.and(unionContaining(byCity, city));
+            }
+
+            String district = normalize(filter.getDistrict());
+            if (district != null) {
+                result.and(unionContaining(byDistrict, district));
+            }
+
+            String type = filter.getPropertyType();
+            if (type != null && !type.trim().isEmpty()) {
+                result.and(byType.getOrDefault(type.trim().toUpperCase(Locale.ROOT), new BitSet()));
+            }
+
+            if (filter.getFloor() != null) {
+                result.and(byFloor.getOrDefault(filter.getFloor(), new BitSet()));
+            }
+
+            BigDecimal minPrice = filter.getMinPrice();
+            BigDecimal maxPrice = filter.getMaxPrice();
+            boolean priceFiltered = minPrice != null || maxPrice != null;
+            if (priceFiltered) {
+                result.and(unionPriceBuckets(minPrice, maxPrice));
+            }
+
+            List<IndexedListing> matches = new ArrayList<>(result.cardinality());
+            for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+                IndexedListing doc = docs.get(slot);
+                if (!priceFiltered || matchesPrice(doc.pricePerNight(), minPrice, maxPrice)) {
+                    matches.add(doc);
+                }
+            }
+            matches.sort(Comparator.comparing(IndexedListing::id));
+            return Optional.of(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(IndexedListing doc) {
+        remove(doc.id());
+
+        Integer slot = freeSlots.poll();
+        if (slot == null) {
+            slot = docs.size();
+            docs.add(doc);
+        } else {
+            docs.set(slot, doc);
+        }
+        slotsById.put(doc.id(), slot);
+        live.set(slot);
+
+        String city = normalize(doc.city());
+        if (city != null) {
+            byCity.computeIfAbsent(city, k -> new BitSet()).set(slot);
+        }
+        String district = normalize(doc.district());
+        if (district != null) {
+            byDistrict.computeIfAbsent(district, k -> new BitSet()).set(slot);
+        }
+        if (doc.type() != null) {
+            byType.computeIfAbsent(doc.type(), k -> new BitSet()).set(slot);
+        }
+        if (doc.floor() != null) {
+            byFloor.computeIfAbsent(doc.floor(), k -> new BitSet()).set(slot);
+        }
+        if (doc.pricePerNight() != null) {
+            byPriceBucket.computeIfAbsent(priceBucket(doc.pricePerNight()), k -> new BitSet()).set(slot);
+        }
+    }
+
+    private void remove(Long listingId) {
+        Integer slot = slotsById.remove(listingId);
+        if (slot == null) {
+            return;
+        }
+        IndexedListing doc = docs.get(slot);
+
+        clearBit(byCity, normalize(doc.city()), slot);
+        clearBit(byDistrict, normalize(doc.district()), slot);
+        clearBit(byType, doc.type(), slot);
+        clearBit(byFloor, doc.floor(), slot);
+        if (doc.pricePerNight() != null) {
+            clearBit(byPriceBucket, priceBucket(doc.pricePerNight()), slot);
+        }
+
+        docs.set(slot, null);
+        live.clear(slot);
+        freeSlots.push(slot);
+    }
+
+    private static <K> void clearBit(Map<K, BitSet> bitmaps, K key, int slot) {
+        if (key == null) {
+            return;
+        }
+        BitSet bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(key);
+            }
+        }
+    }
+
+    // Поиск по городу и району - подстрочный, как LIKE '%x%' в SQL-запросе
+    private static BitSet unionContaining(Map<String, BitSet> bitmaps, String term) {
+        BitSet union = new BitSet();
+        for (Map.Entry<String, BitSet> entry : bitmaps.entrySet()) {
+            if (entry.getKey().contains(term)) {
+                union.or(entry.getValue());
+            }
+        }
+        return union;
+    }
+
+    private BitSet unionPriceBuckets(BigDecimal minPrice, BigDecimal maxPrice) {
+        long from = minPrice != null ? priceBucket(minPrice) : Long.MIN_VALUE;
+        long to = maxPrice != null ? priceBucket(maxPrice) : Long.MAX_VALUE;
+        BitSet union = new BitSet();
+        if (from > to) {
+            return union;
+        }
+        for (BitSet bitmap : byPriceBucket.subMap(from, true, to, true).values()) {
+            union.or(bitmap);
+        }
+        return union;
+    }
+
+    private static boolean matchesPrice(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice) {
+        return price != null
+                && (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+
+    private static long priceBucket(BigDecimal price) {
+        return price.divideToIntegralValue(PRICE_BUCKET_SIZE).longValue();
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
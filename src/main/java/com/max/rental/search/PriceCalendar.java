@@ -0,0 +1,280 @@
+package com.max.rental.search;
+
+import com.max.rental.models.entities.PriceRule;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.repositories.PriceRuleRepository;
+import com.max.rental.services.support.AfterCommit;
+import com.max.rental.services.support.MinorUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Календарь цен объявлений с правилами. Правила компилируются в массив префиксных
+ * сумм цены за ночь (в копейках) на горизонте HORIZON_DAYS от базовой даты, так что
+ * стоимость любого проживания - одна разность. Объявления без правил в календаре
+ * не хранятся: их стоимость - базовая цена, умноженная на число ночей.
+ */
+@Slf4j
+@Component
+public class PriceCalendar {
+
+    private static final int HORIZON_DAYS = 730;
+
+    private final PriceRuleRepository priceRuleRepository;
+    private final ListingRepository listingRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, CompiledPrices> byListing = new HashMap<>();
+
+    private LocalDate baseDate;
+    private volatile boolean ready;
+
+    public PriceCalendar(PriceRuleRepository priceRuleRepository, ListingRepository listingRepository) {
+        this.priceRuleRepository = priceRuleRepository;
+        this.listingRepository = listingRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            byListing.clear();
+            baseDate = LocalDate.now();
+
+            List<PriceRule> rules = priceRuleRepository.findAllWithListing();
+            Map<Long, List<PriceRule>> byListingId = new LinkedHashMap<>();
+            for (PriceRule rule : rules) {
+                byListingId.computeIfAbsent(rule.getListing().getId(), id -> new ArrayList<>()).add(rule);
+            }
+            byListingId.forEach((listingId, listingRules) -> byListing.put(listingId,
+                    compile(MinorUnits.of(listingRules.get(0).getListing().getPricePerNight()), listingRules)));
+            ready = true;
+            log.info("Календарь цен построен: {} правил у {} объявлений", rules.size(), byListing.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Префиксные суммы отсчитываются от базовой даты, поэтому календарь пересобирается каждый день
+    @Scheduled(cron = "0 10 0 * * *")
+    public void rebaseIfNeeded() {
+        if (baseDate != null && baseDate.isBefore(LocalDate.now())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Стоимость ночей [startDate, endDate) в копейках. {@code basePrice} - цена за ночь
+     * без правил, её используют объявления, которых нет в календаре.
+     */
+    public long stayTotal(Long listingId, long basePrice, LocalDate startDate, LocalDate endDate) {
+        long nights = ChronoUnit.DAYS.between(startDate, endDate);
+        if (!ready) {
+            List<PriceRule> rules = priceRuleRepository.findByListingIdOrderByIdAsc(listingId);
+            return rules.isEmpty()
+                    ? Math.multiplyExact(basePrice, nights)
+                    : compileRules(basePrice, rules).sum(startDate, endDate);
+        }
+        lock.readLock().lock();
+        try {
+            CompiledPrices prices = byListing.get(listingId);
+            if (prices == null) {
+                return Math.multiplyExact(basePrice, nights);
+            }
+            int from = dayIndex(startDate);
+            int to = dayIndex(endDate);
+            if (from >= 0 && to <= HORIZON_DAYS) {
+                return prices.prefix[to] - prices.prefix[from];
+            }
+            // За горизонтом календаря цена считается по правилам для каждой ночи
+            return prices.rules.sum(startDate, endDate);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Разбивает объявления с правилами на подходящие и не подходящие под ценовой фильтр
+     * по средней цене за ночь на даты [startDate, endDate). Без дат, без границ цены или
+     * за горизонтом календаря возвращает {@link StayPriceFilter#NONE} - фильтр по базовой цене.
+     */
+    public StayPriceFilter stayPriceFilter(LocalDate startDate, LocalDate endDate,
+                                           BigDecimal minPrice, BigDecimal maxPrice) {
+        if (!ready || startDate == null || endDate == null || (minPrice == null && maxPrice == null)) {
+            return StayPriceFilter.NONE;
+        }
+        lock.readLock().lock();
+        try {
+            int from = dayIndex(startDate);
+            int to = dayIndex(endDate);
+            if (byListing.isEmpty() || from < 0 || to > HORIZON_DAYS || from >= to) {
+                return StayPriceFilter.NONE;
+            }
+            Long minTotal = minTotal(minPrice, to - from);
+            Long maxTotal = maxTotal(maxPrice, to - from);
+
+            List<Long> included = new ArrayList<>();
+            List<Long> excluded = new ArrayList<>();
+            byListing.forEach((listingId, prices) -> {
+                long total = prices.prefix[to] - prices.prefix[from];
+                boolean fits = (minTotal == null || total >= minTotal) && (maxTotal == null || total <= maxTotal);
+                (fits ? included : excluded).add(listingId);
+            });
+            return StayPriceFilter.of(included, excluded);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Подходит ли одно объявление под ценовой фильтр по тому же правилу, что и
+     * {@link #stayPriceFilter}: с правилами - по средней цене на даты, иначе по базовой цене.
+     */
+    public boolean fitsPriceFilter(Long listingId, BigDecimal basePrice, LocalDate startDate, LocalDate endDate,
+                                   BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return true;
+        }
+        if (ready && startDate != null && endDate != null) {
+            lock.readLock().lock();
+            try {
+                CompiledPrices prices = byListing.get(listingId);
+                int from = dayIndex(startDate);
+                int to = dayIndex(endDate);
+                if (prices != null && from >= 0 && to <= HORIZON_DAYS && from < to) {
+                    long total = prices.prefix[to] - prices.prefix[from];
+                    Long minTotal = minTotal(minPrice, to - from);
+                    Long maxTotal = maxTotal(maxPrice, to - from);
+                    return (minTotal == null || total >= minTotal) && (maxTotal == null || total <= maxTotal);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return basePrice != null
+                && (minPrice == null || basePrice.compareTo(minPrice) >= 0)
+                && (maxPrice == null || basePrice.compareTo(maxPrice) <= 0);
+    }
+
+    // Средняя цена в границах [min, max] <=> сумма в границах [min * ночи, max * ночи]
+    private static Long minTotal(BigDecimal minPrice, int nights) {
+        return minPrice != null ? minPrice.movePointRight(2).multiply(BigDecimal.valueOf(nights))
+                .setScale(0, RoundingMode.CEILING).longValueExact() : null;
+    }
+
+    private static Long maxTotal(BigDecimal maxPrice, int nights) {
+        return maxPrice != null ? maxPrice.movePointRight(2).multiply(BigDecimal.valueOf(nights))
+                .setScale(0, RoundingMode.FLOOR).longValueExact() : null;
+    }
+
+    public boolean hasRules(Long listingId) {
+        lock.readLock().lock();
+        try {
+            return byListing.containsKey(listingId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Перекомпилирует цены объявления после коммита: вызывается при изменении
+     * правил и базовой цены.
+     */
+    public void onPricingChanged(Long listingId) {
+        AfterCommit.run(() -> {
+            List<PriceRule> rules = priceRuleRepository.findByListingIdOrderByIdAsc(listingId);
+            Optional<BigDecimal> basePrice = rules.isEmpty()
+                    ? Optional.empty()
+                    : listingRepository.findPricePerNightById(listingId);
+
+            lock.writeLock().lock();
+            try {
+                if (!ready) {
+                    return;
+                }
+                if (basePrice.isEmpty()) {
+                    byListing.remove(listingId);
+                } else {
+                    byListing.put(listingId, compile(MinorUnits.of(basePrice.get()), rules));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Цены объявления {} перекомпилированы: {} правил", listingId, rules.size());
+        });
+    }
+
+    private CompiledPrices compile(long basePrice, List<PriceRule> rules) {
+        RuleSet ruleSet = compileRules(basePrice, rules);
+        long[] prefix = new long[HORIZON_DAYS + 1];
+        LocalDate date = baseDate;
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            prefix[day + 1] = prefix[day] + ruleSet.priceOn(date);
+            date = date.plusDays(1);
+        }
+        return new CompiledPrices(ruleSet, prefix);
+    }
+
+    private static RuleSet compileRules(long basePrice, List<PriceRule> rules) {
+        // Порядок по убыванию приоритета: сезонные раньше недельных, новые раньше старых
+        List<Rule> ordered = rules.stream()
+                .sorted(Comparator.comparing((PriceRule r) -> r.getStartDate() == null && r.getEndDate() == null)
+                        .thenComparing(PriceRule::getId, Comparator.reverseOrder()))
+                .map(r -> new Rule(r.getStartDate(), r.getEndDate(), r.getDaysOfWeek(),
+                        MinorUnits.of(r.getPricePerNight())))
+                .toList();
+        return new RuleSet(basePrice, ordered);
+    }
+
+    private int dayIndex(LocalDate date) {
+        long days = date.toEpochDay() - baseDate.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, days));
+    }
+
+    private record CompiledPrices(RuleSet rules, long[] prefix) {
+    }
+
+    private record RuleSet(long basePrice, List<Rule> rules) {
+
+        long priceOn(LocalDate date) {
+            for (Rule rule : rules) {
+                if (rule.appliesTo(date)) {
+                    return rule.price();
+                }
+            }
+            return basePrice;
+        }
+
+        long sum(LocalDate startDate, LocalDate endDate) {
+            long total = 0;
+            for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
+                total = Math.addExact(total, priceOn(date));
+            }
+            return total;
+        }
+    }
+
+    private record Rule(LocalDate startDate, LocalDate endDate, int daysOfWeek, long price) {
+
+        boolean appliesTo(LocalDate date) {
+            if (startDate != null && date.isBefore(startDate)) {
+                return false;
+            }
+            if (endDate != null && date.isAfter(endDate)) {
+                return false;
+            }
+            return daysOfWeek == 0 || (daysOfWeek & (1 << (date.getDayOfWeek().getValue() - 1))) != 0;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.max.rental.search;
+
+import com.max.rental.models.enums.EnumListingSortOrder;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ключ страницы поиска: нормализованный фильтр, порядок сортировки, курсор и размер
+ * страницы. Отпечаток продолжает отпечаток {@link SearchQueryKey}, так что зависимости
+ * и проверка при инвалидации по-прежнему считаются по фильтру.
+ */
+public record SearchPageKey(SearchQueryKey query,
+                            EnumListingSortOrder sortOrder,
+                            String cursor,
+                            int size) {
+
+    public String fingerprint() {
+        return query.fingerprint()
+                + SearchQueryKey.FIELD_SEPARATOR + "s=" + sortOrder.name()
+                + SearchQueryKey.FIELD_SEPARATOR + "a=" + SearchQueryKey.encode(cursor)
+                + SearchQueryKey.FIELD_SEPARATOR + "n=" + size;
+    }
+
+    /**
+     * Восстанавливает ключ из отпечатка. Для повреждённой строки возвращает пустой Optional.
+     */
+    public static Optional<SearchPageKey> parse(String fingerprint) {
+        Optional<Map<String, String>> fields = SearchQueryKey.parseFields(fingerprint);
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<SearchQueryKey> query = SearchQueryKey.fromFields(fields.get());
+        if (query.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Map<String, String> values = fields.get();
+            return Optional.of(new SearchPageKey(query.get(),
+                    EnumListingSortOrder.valueOf(values.get("s")),
+                    values.get("a"),
+                    Integer.parseInt(values.get("n"))));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.max.rental.search;
+
+import com.max.rental.dto.listing.ListingFilterDto;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Нормализованный фильтр поиска. Фильтры, которые дают одинаковый результат
+ * (регистр, пробелы, 1000 и 1000.00, одна из дат без второй), получают один отпечаток.
+ */
+public record SearchQueryKey(String city,
+                             String district,
+                             String type,
+                             BigDecimal minPrice,
+                             BigDecimal maxPrice,
+                             Integer floor,
+                             LocalDate startDate,
+                             LocalDate endDate) {
+
+    static final String FIELD_SEPARATOR = "|";
+
+    public static SearchQueryKey of(ListingFilterDto filter) {
+        boolean datesSet = filter.getStartDate() != null && filter.getEndDate() != null;
+        return new SearchQueryKey(
+                normalize(filter.getCity()),
+                normalize(filter.getDistrict()),
+                normalizeType(filter.getPropertyType()),
+                normalize(filter.getMinPrice()),
+                normalize(filter.getMaxPrice()),
+                filter.getFloor(),
+                datesSet ? filter.getStartDate() : null,
+                datesSet ? filter.getEndDate() : null
+        );
+    }
+
+    /**
+     * Разбирает отпечаток на поля; ключ страницы дописывает к ним свои, см. {@link SearchPageKey}.
+     */
+    static Optional<Map<String, String>> parseFields(String fingerprint) {
+        try {
+            Map<String, String> fields = new HashMap<>();
+            for (String part : fingerprint.split("\\" + FIELD_SEPARATOR, -1)) {
+                int eq = part.indexOf('=');
+                if (eq < 0) {
+                    return Optional.empty();
+                }
+                String value = URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8);
+                fields.put(part.substring(0, eq), value.isEmpty() ? null : value);
+            }
+            return Optional.of(fields);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    static Optional<SearchQueryKey> fromFields(Map<String, String> fields) {
+        try {
+            return Optional.of(new SearchQueryKey(
+                    fields.get("c"),
+                    fields.get("d"),
+                    fields.get("t"),
+                    fields.get("min") != null ? new BigDecimal(fields.get("min")) : null,
+                    fields.get("max") != null ? new BigDecimal(fields.get("max")) : null,
+                    fields.get("f") != null ? Integer.valueOf(fields.get("f")) : null,
+                    fields.get("from") != null ? LocalDate.parse(fields.get("from")) : null,
+                    fields.get("to") != null ? LocalDate.parse(fields.get("to")) : null
+            ));
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean hasDates() {
+        return startDate != null && endDate != null;
+    }
+
+    public boolean hasPriceBounds() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    public String fingerprint() {
+        return "c=" + encode(city)
+                + FIELD_SEPARATOR + "d=" + encode(district)
+                + FIELD_SEPARATOR + "t=" + encode(type)
+                + FIELD_SEPARATOR + "min=" + encode(minPrice != null ? minPrice.toPlainString() : null)
+                + FIELD_SEPARATOR + "max=" + encode(maxPrice != null ? maxPrice.toPlainString() : null)
+                + FIELD_SEPARATOR + "f=" + encode(floor)
+                + FIELD_SEPARATOR + "from=" + encode(startDate)
+                + FIELD_SEPARATOR + "to=" + encode(endDate);
+    }
+
+    /**
+     * Проверяет, подходит ли объявление под атрибутные условия запроса без дат и цены.
+     * Семантика совпадает с поисковым индексом и SQL-запросом: город и район - по подстроке.
+     * Границы цены проверяет {@link PriceCalendar#fitsPriceFilter}: для объявлений с
+     * правилами цен попадание в них зависит от дат запроса.
+     */
+    public boolean matchesIgnoringPrice(IndexedListing listing) {
+        if (city != null && !contains(listing.city(), city)) {
+            return false;
+        }
+        if (district != null && !contains(listing.district(), district)) {
+            return false;
+        }
+        if (type != null && !type.equals(normalizeType(listing.type()))) {
+            return false;
+        }
+        return floor == null || floor.equals(listing.floor());
+    }
+
+    /**
+     * Пересекается ли бронирование [from, to) с датами запроса.
+     */
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return hasDates() && from.isBefore(endDate) && to.isAfter(startDate);
+    }
+
+    private static boolean contains(String value, String term) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(term);
+    }
+
+    static String encode(Object value) {
+        return value != null ? URLEncoder.encode(value.toString(), StandardCharsets.UTF_8) : "";
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizeType(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static BigDecimal normalize(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros() : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.max.rental.search;
+
+import java.util.List;
+
+/**
+ * Поправка ценового фильтра поиска на правила цен: объявления с правилами, чья
+ * средняя цена за ночь на выбранные даты попадает в границы фильтра ({@code includedIds})
+ * или выходит за них ({@code excludedIds}), независимо от базовой цены.
+ * Списки никогда не пусты - JPQL не принимает пустой IN.
+ */
+public record StayPriceFilter(List<Long> includedIds, List<Long> excludedIds) {
+
+    private static final List<Long> NO_IDS = List.of(-1L);
+
+    public static final StayPriceFilter NONE = new StayPriceFilter(NO_IDS, NO_IDS);
+
+    public static StayPriceFilter of(List<Long> includedIds, List<Long> excludedIds) {
+        return new StayPriceFilter(includedIds.isEmpty() ? NO_IDS : includedIds,
+                excludedIds.isEmpty() ? NO_IDS : excludedIds);
+    }
+
+    public boolean isNone() {
+        return includedIds == NO_IDS && excludedIds == NO_IDS;
+    }
+}
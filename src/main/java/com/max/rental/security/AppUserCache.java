@@ -0,0 +1,86 @@
+package com.max.rental.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.max.rental.cache.CacheInvalidationBus;
+import com.max.rental.services.support.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Локальный кэш {@link AppUserPrincipal} для входа и remember-me, чтобы повторная
+ * аутентификация не читала users с ролями. Сброс ключа рассылается остальным узлам
+ * через {@link CacheInvalidationBus}.
+ * <p>
+ * Spring Security стирает пароль у principal после входа, а remember-me подписывает
+ * токен хешем пароля, поэтому кэш хранит и отдаёт копии, а не сам principal.
+ */
+@Component
+public class AppUserCache implements UserCache, CacheInvalidationBus.LocalCacheListener {
+
+    private static final String CACHE_NAME = "userDetails";
+
+    private final Cache<String, AppUserPrincipal> cache;
+    private final CacheInvalidationBus invalidationBus;
+
+    public AppUserCache(CacheInvalidationBus invalidationBus,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.security.user-cache.max-size:10000}") long maxSize,
+                        @Value("${app.security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationBus.register(CACHE_NAME, this);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        AppUserPrincipal cached = cache.getIfPresent(username);
+        return cached != null ? copy(cached) : null;
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (user instanceof AppUserPrincipal principal && principal.getPassword() != null) {
+            cache.put(principal.getUsername(), copy(principal));
+        }
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+        invalidationBus.publishEvict(CACHE_NAME, username);
+    }
+
+    /**
+     * Сбрасывает пользователя после коммита текущей транзакции: роли, профиль, удаление.
+     */
+    public void evict(String email) {
+        AfterCommit.run(() -> removeUserFromCache(email));
+    }
+
+    @Override
+    public void evictLocal(String key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void clearLocal() {
+        cache.invalidateAll();
+    }
+
+    private static AppUserPrincipal copy(AppUserPrincipal principal) {
+        return new AppUserPrincipal(principal.getId(), principal.getUsername(), principal.getPassword(),
+                principal.getAuthorities());
+    }
+}
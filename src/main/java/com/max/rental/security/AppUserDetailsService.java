@@ -4,7 +4,6 @@ import com.max.rental.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -30,7 +29,8 @@ public class AppUserDetailsService implements UserDetailsService {
                                     .map(r -> r.getName().name())
                                     .collect(Collectors.joining(", ")));
 
-                    return new User(
+                    return new AppUserPrincipal(
+                            user.getId(),
                             user.getEmail(),
                             user.getPasswordHash(),
                             user.getRoles().stream()
@@ -0,0 +1,39 @@
+package com.max.rental.security;
+
+import com.max.rental.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Перехеширует пароль при входе, если стоимость BCrypt в сохранённом хеше меньше
+ * настроенной (app.security.bcrypt.strength). Вызывается Spring Security после
+ * успешной проверки пароля.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppUserPasswordService implements UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final AppUserCache appUserCache;
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordHash(user.getUsername(), newPassword);
+        appUserCache.evict(user.getUsername());
+        log.info("Хеш пароля пользователя {} обновлён до текущей стоимости", user.getUsername());
+
+        if (user instanceof AppUserPrincipal principal) {
+            return new AppUserPrincipal(principal.getId(), principal.getUsername(), newPassword,
+                    principal.getAuthorities());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
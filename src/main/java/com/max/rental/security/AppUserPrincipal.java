@@ -0,0 +1,28 @@
+package com.max.rental.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Аутентифицированный пользователь вместе с его id. Id и роли фиксируются при входе,
+ * поэтому CurrentUserService отвечает на вопросы "кто" и "с какими ролями" без запроса к БД.
+ */
+public class AppUserPrincipal extends User {
+
+    // Principal хранится в HTTP-сессии
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+
+    public AppUserPrincipal(Long id, String email, String passwordHash,
+                            Collection<? extends GrantedAuthority> authorities) {
+        super(email, passwordHash, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -4,51 +4,76 @@ import com.max.rental.models.entities.User;
 import com.max.rental.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.Optional;
 
+/**
+ * Текущий пользователь. Id и роли берутся из {@link AppUserPrincipal} без запросов к БД;
+ * сущность {@link User} загружается только по требованию и запоминается до конца запроса.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CurrentUserService {
 
+    private static final String USER_ATTRIBUTE = CurrentUserService.class.getName() + ".user";
+
     private final UserRepository userRepository;
 
     public User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Authentication authentication = authentication()
+                .orElseThrow(() -> {
+                    log.warn("Попытка получить текущего пользователя без аутентификации");
+                    return new UsernameNotFoundException("Пользователь не аутентифицирован");
+                });
 
-        if (authentication == null || !authentication.isAuthenticated()
-                || "anonymousUser".equals(authentication.getPrincipal())) {
-            log.warn("Попытка получить текущего пользователя без аутентификации");
-            throw new UsernameNotFoundException("Пользователь не аутентифицирован");
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user) {
+            return user;
         }
 
-        String email = authentication.getName();
-        log.debug("Получение пользователя по email: {}", email);
+        User user = loadUser(authentication);
+        if (request != null) {
+            request.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
 
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    log.error("Пользователь не найден в БД: {}", email);
-                    return new UsernameNotFoundException("Пользователь не найден: " + email);
-                });
+    /**
+     * Ссылка на текущего пользователя для связей новых сущностей (бронирование, отзыв,
+     * объявление). При известном id это прокси без запроса к БД; вызывать внутри транзакции.
+     */
+    public User getCurrentUserReference() {
+        Optional<AppUserPrincipal> principal = principal();
+        if (principal.isPresent()) {
+            return userRepository.getReferenceById(principal.get().getId());
+        }
+        return getCurrentUser();
     }
 
     public Long getCurrentUserId() {
+        Optional<AppUserPrincipal> principal = principal();
+        if (principal.isPresent()) {
+            return principal.get().getId();
+        }
         return getCurrentUser().getId();
     }
 
     public boolean isAuthenticated() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return authentication != null
-                && authentication.isAuthenticated()
-                && !"anonymousUser".equals(authentication.getPrincipal());
+        return authentication().isPresent();
     }
 
     public Optional<User> getCurrentUserOptional() {
+        if (!isAuthenticated()) {
+            return Optional.empty();
+        }
         try {
             return Optional.of(getCurrentUser());
         } catch (Exception e) {
@@ -57,18 +82,56 @@ public class CurrentUserService {
     }
 
     public boolean isCurrentUserOwner() {
-        try {
-            return getCurrentUser().isOwner();
-        } catch (Exception e) {
-            return false;
-        }
+        return hasRole("OWNER");
     }
 
     public boolean isCurrentUserAdmin() {
-        try {
-            return getCurrentUser().isAdmin();
-        } catch (Exception e) {
-            return false;
+        return hasRole("ADMIN");
+    }
+
+    // Роли зафиксированы в аутентификации при входе, как и для проверок доступа Spring Security
+    private boolean hasRole(String role) {
+        String authority = "ROLE_" + role;
+        return authentication()
+                .map(a -> a.getAuthorities().stream().anyMatch(granted -> authority.equals(granted.getAuthority())))
+                .orElse(false);
+    }
+
+    private User loadUser(Authentication authentication) {
+        Optional<AppUserPrincipal> principal = principal();
+        if (principal.isPresent()) {
+            Long id = principal.get().getId();
+            log.debug("Получение пользователя по id: {}", id);
+            return userRepository.findById(id)
+                    .orElseThrow(() -> {
+                        log.error("Пользователь не найден в БД: {}", id);
+                        return new UsernameNotFoundException("Пользователь не найден: " + authentication.getName());
+                    });
+        }
+
+        // Сессии, созданные до появления AppUserPrincipal, содержат только email
+        String email = authentication.getName();
+        log.debug("Получение пользователя по email: {}", email);
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> {
+                    log.error("Пользователь не найден в БД: {}", email);
+                    return new UsernameNotFoundException("Пользователь не найден: " + email);
+                });
+    }
+
+    private Optional<AppUserPrincipal> principal() {
+        return authentication()
+                .map(Authentication::getPrincipal)
+                .filter(AppUserPrincipal.class::isInstance)
+                .map(AppUserPrincipal.class::cast);
+    }
+
+    private static Optional<Authentication> authentication() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return Optional.empty();
         }
+        return Optional.of(authentication);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.max.rental.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Очередь хеширования паролей заполнена. Отдаётся клиенту как 503: вход и регистрация
+ * отказывают сразу, а не занимают потоки запросов в ожидании.
+ */
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException() {
+        super("Слишком много попыток входа, повторите через несколько секунд");
+    }
+}
@@ -1,9 +1,9 @@
 package com.max.rental.services;
 
-import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.cache.OwnerDashboardCache;
+import com.max.rental.dto.CursorPageDto;
 import com.max.rental.dto.booking.BookingHistoryDto;
 import com.max.rental.dto.booking.BookingRequestDto;
-import com.max.rental.dto.booking.PriceCalculationDto;
 import com.max.rental.models.entities.Booking;
 import com.max.rental.models.entities.Listing;
 import com.max.rental.models.entities.User;
@@ -11,57 +11,74 @@ import com.max.rental.models.enums.EnumBookingStatus;
 import com.max.rental.models.enums.EnumListingStatus;
 import com.max.rental.repositories.BookingRepository;
 import com.max.rental.repositories.ListingRepository;
-import com.max.rental.repositories.ReviewRepository;
+import com.max.rental.search.AvailabilityCalendar;
+import com.max.rental.search.ListingSearchCache;
+import com.max.rental.search.PriceCalendar;
 import com.max.rental.security.CurrentUserService;
-import org.modelmapper.ModelMapper;
+import com.max.rental.services.support.KeysetCursor;
+import com.max.rental.services.support.ListingLockManager;
+import com.max.rental.services.support.MinorUnits;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class BookingService {
 
     private static final Logger log = LoggerFactory.getLogger(BookingService.class);
-    private static final BigDecimal SERVICE_FEE_RATE = new BigDecimal("0.05");
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 50;
+    private static final String UPCOMING_PHASE = "U";
+    private static final String PAST_PHASE = "P";
+
+    // SQLSTATE exclusion_violation - сработало ограничение bookings_no_overlap
+    private static final String EXCLUSION_VIOLATION = "23P01";
 
     private final BookingRepository bookingRepository;
     private final ListingRepository listingRepository;
-    private final ReviewRepository reviewRepository;
     private final CurrentUserService currentUserService;
-    private final ModelMapper modelMapper;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final PriceCalendar priceCalendar;
+    private final ListingSearchCache listingSearchCache;
+    private final CityStatsService cityStatsService;
+    private final ListingLockManager listingLockManager;
+    private final OwnerDashboardCache ownerDashboardCache;
 
     public BookingService(BookingRepository bookingRepository,
                           ListingRepository listingRepository,
-                          ReviewRepository reviewRepository,
                           CurrentUserService currentUserService,
-                          ModelMapper modelMapper) {
+                          AvailabilityCalendar availabilityCalendar,
+                          PriceCalendar priceCalendar,
+                          ListingSearchCache listingSearchCache,
+                          CityStatsService cityStatsService,
+                          ListingLockManager listingLockManager,
+                          OwnerDashboardCache ownerDashboardCache) {
         this.bookingRepository = bookingRepository;
         this.listingRepository = listingRepository;
-        this.reviewRepository = reviewRepository;
         this.currentUserService = currentUserService;
-        this.modelMapper = modelMapper;
+        this.availabilityCalendar = availabilityCalendar;
+        this.priceCalendar = priceCalendar;
+        this.listingSearchCache = listingSearchCache;
+        this.cityStatsService = cityStatsService;
+        this.listingLockManager = listingLockManager;
+        this.ownerDashboardCache = ownerDashboardCache;
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = RedisCacheConfig.LISTING_SEARCH_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.POPULAR_CITIES_CACHE, allEntries = true)
-    })
     public void createBooking(BookingRequestDto dto) {
         Long currentUserId = currentUserService.getCurrentUserId();
-        User currentUser = currentUserService.getCurrentUser();
+        User currentUser = currentUserService.getCurrentUserReference();
 
         log.info("Пользователь {} создает бронирование для объявления {}", currentUserId, dto.getListingId());
 
@@ -87,22 +104,23 @@ public class BookingService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата выезда должна быть позже даты заезда");
         }
 
-        List<Booking> existingBookings = bookingRepository.findAllByListingId(dto.getListingId());
-        for (Booking existing : existingBookings) {
-            if (existing.getStatus() == EnumBookingStatus.CANCELLED) {
-                continue;
-            }
-            if (!(dto.getEndDate().isBefore(existing.getStartDate()) ||
-                    dto.getStartDate().isAfter(existing.getEndDate()) ||
-                    dto.getEndDate().isEqual(existing.getStartDate()) ||
-                    dto.getStartDate().isEqual(existing.getEndDate()))) {
-                throw new ResponseStatusException(HttpStatus.CONFLICT,
-                        "Выбранные даты уже заняты. Пожалуйста, выберите другие даты.");
+        listingLockManager.lock(dto.getListingId());
+
+        // Календарь локальный и может отставать от других узлов, поэтому его отказ
+        // подтверждается по БД; окончательную проверку делает ограничение bookings_no_overlap
+        boolean available = availabilityCalendar
+                .isAvailable(dto.getListingId(), dto.getStartDate(), dto.getEndDate())
+                .orElse(true);
+        if (!available) {
+            if (bookingRepository.existsActiveOverlap(dto.getListingId(), dto.getStartDate(), dto.getEndDate())) {
+                throw datesTaken();
             }
+            log.warn("Календарь занятости объявления {} разошёлся с БД, перечитываем", dto.getListingId());
+            availabilityCalendar.refresh(dto.getListingId());
         }
 
-        long nights = ChronoUnit.DAYS.between(dto.getStartDate(), dto.getEndDate());
-        BigDecimal totalPrice = listing.getPricePerNight().multiply(BigDecimal.valueOf(nights));
+        BigDecimal totalPrice = MinorUnits.toDecimal(priceCalendar.stayTotal(listing.getId(),
+                MinorUnits.of(listing.getPricePerNight()), dto.getStartDate(), dto.getEndDate()));
 
         Booking booking = new Booking();
         booking.setListing(listing);
@@ -112,19 +130,47 @@ public class BookingService {
         booking.setTotalPrice(totalPrice);
         booking.setStatus(EnumBookingStatus.CONFIRMED);
 
-        bookingRepository.save(booking);
-        log.info("Бронирование создано: {} для пользователя {}", booking.getId(), currentUser.getEmail());
+        try {
+            bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            if (isOverlapViolation(e)) {
+                log.info("Даты {} - {} объявления {} заняты параллельным бронированием",
+                        dto.getStartDate(), dto.getEndDate(), dto.getListingId());
+                throw datesTaken();
+            }
+            throw e;
+        }
+        availabilityCalendar.onBookingCreated(booking);
+        listingSearchCache.onBookingChanged(booking);
+        cityStatsService.onBookingStatusChanged(listing.getAddress().getCity(), null, EnumBookingStatus.CONFIRMED);
+        ownerDashboardCache.invalidate(listing.getOwner().getId());
+        log.info("Бронирование создано: {} для пользователя {}", booking.getId(), currentUserId);
+    }
+
+    private static ResponseStatusException datesTaken() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Выбранные даты уже заняты. Пожалуйста, выберите другие даты.");
+    }
+
+    private static boolean isOverlapViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && EXCLUSION_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = RedisCacheConfig.LISTING_SEARCH_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.POPULAR_CITIES_CACHE, allEntries = true)
-    })
     public void cancelBooking(Long bookingId) {
         Long currentUserId = currentUserService.getCurrentUserId();
         log.info("Пользователь {} отменяет бронирование {}", currentUserId, bookingId);
 
+        Long listingId = bookingRepository.findListingIdById(bookingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Бронирование не найдено"));
+        // Статус читается уже под блокировкой, чтобы параллельная отмена не учлась дважды
+        listingLockManager.lock(listingId);
+
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Бронирование не найдено"));
 
@@ -141,75 +187,74 @@ public class BookingService {
                     "Нельзя отменить бронирование после даты заезда");
         }
 
+        EnumBookingStatus previousStatus = booking.getStatus();
         booking.setStatus(EnumBookingStatus.CANCELLED);
         bookingRepository.save(booking);
+        availabilityCalendar.onBookingCancelled(booking);
+        listingSearchCache.onBookingChanged(booking);
+        cityStatsService.onBookingStatusChanged(
+                booking.getListing().getAddress().getCity(), previousStatus, EnumBookingStatus.CANCELLED);
+        ownerDashboardCache.invalidate(booking.getListing().getOwner().getId());
         log.info("Бронирование {} успешно отменено", bookingId);
     }
 
+    /**
+     * Страница истории бронирований: сначала предстоящие по дате заезда, затем прошедшие
+     * по дате выезда от новых к старым. Строки читаются проекцией вместе с объявлением,
+     * городом и признаком отзыва; курсор хранит фазу и ключ последней строки, поэтому
+     * страница стоит одного запроса, а на стыке фаз - двух.
+     */
     @Transactional(readOnly = true)
-    public List<BookingHistoryDto> getBookingHistory() {
+    public CursorPageDto<BookingHistoryDto> getBookingHistoryPage(String cursor, int size) {
         Long currentUserId = currentUserService.getCurrentUserId();
-        List<Booking> bookings = bookingRepository.findAllByRenterId(currentUserId);
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
         LocalDate today = LocalDate.now();
 
-        return bookings.stream()
-                .sorted((b1, b2) -> {
-                    boolean b1IsUpcoming = b1.getStartDate().isAfter(today) || b1.getStartDate().isEqual(today);
-                    boolean b2IsUpcoming = b2.getStartDate().isAfter(today) || b2.getStartDate().isEqual(today);
-
-                    if (b1IsUpcoming == b2IsUpcoming) {
-                        if (b1IsUpcoming) {
-                            return b1.getStartDate().compareTo(b2.getStartDate());
-                        } else {
-                            return b2.getEndDate().compareTo(b1.getEndDate());
-                        }
-                    }
-                    return b1IsUpcoming ? -1 : 1;
-                })
-                .map(this::mapToHistoryDto)
-                .collect(Collectors.toList());
-    }
-
-    private BookingHistoryDto mapToHistoryDto(Booking booking) {
-        BookingHistoryDto dto = modelMapper.map(booking, BookingHistoryDto.class);
-
-        Listing listing = booking.getListing();
-        dto.setListingId(listing.getId());
-        dto.setListingTitle(listing.getTitle());
-        if (listing.getAddress() != null) {
-            dto.setCity(listing.getAddress().getCity());
+        boolean pastPhase = false;
+        LocalDate afterDate = null;
+        Long afterId = null;
+        KeysetCursor after = KeysetCursor.decode(cursor).orElse(null);
+        if (after != null) {
+            try {
+                pastPhase = after.sortKey().startsWith(PAST_PHASE);
+                afterDate = LocalDate.parse(after.sortKey().substring(1));
+                afterId = after.id();
+            } catch (RuntimeException e) {
+                log.debug("Курсор истории бронирований '{}' не разобран, возвращаем первую страницу", cursor);
+                pastPhase = false;
+                afterDate = null;
+                afterId = null;
+            }
         }
 
-        boolean hasReview = reviewRepository.findByBookingId(booking.getId()).isPresent();
-        dto.setHasReview(hasReview);
-
-        boolean canLeaveReview = !hasReview
-                && booking.getStatus() == EnumBookingStatus.CONFIRMED
-                && booking.getEndDate().isBefore(LocalDate.now());
-        dto.setCanLeaveReview(canLeaveReview);
-
-        return dto;
-    }
-
-    @Transactional(readOnly = true)
-    public PriceCalculationDto calculatePrice(Long listingId, LocalDate startDate, LocalDate endDate) {
-        if (startDate == null || endDate == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Укажите даты бронирования");
+        List<BookingHistoryDto> rows = new ArrayList<>(pageSize + 1);
+        if (!pastPhase) {
+            rows.addAll(bookingRepository.findUpcomingHistory(
+                    currentUserId, today, afterDate, afterId, PageRequest.of(0, pageSize + 1)));
+            afterDate = null;
+            afterId = null;
         }
-        if (!endDate.isAfter(startDate)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата выезда должна быть позже даты заезда");
+        if (rows.size() <= pageSize) {
+            rows.addAll(bookingRepository.findPastHistory(
+                    currentUserId, today, afterDate, afterId, PageRequest.of(0, pageSize + 1 - rows.size())));
         }
 
-        Listing listing = listingRepository.findById(listingId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
-
-        long nights = ChronoUnit.DAYS.between(startDate, endDate);
-
-        BigDecimal pricePerNight = listing.getPricePerNight();
-        BigDecimal subtotal = pricePerNight.multiply(BigDecimal.valueOf(nights));
-        BigDecimal serviceFee = subtotal.multiply(SERVICE_FEE_RATE).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal total = subtotal.add(serviceFee);
+        boolean hasNext = rows.size() > pageSize;
+        List<BookingHistoryDto> items = hasNext ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        for (BookingHistoryDto dto : items) {
+            dto.setCanLeaveReview(!dto.isHasReview()
+                    && dto.getStatus() == EnumBookingStatus.CONFIRMED
+                    && dto.getEndDate().isBefore(today));
+        }
 
-        return new PriceCalculationDto(nights, pricePerNight, subtotal, serviceFee, total);
+        String nextCursor = null;
+        if (hasNext) {
+            BookingHistoryDto last = items.get(items.size() - 1);
+            String sortKey = last.getStartDate().isBefore(today)
+                    ? PAST_PHASE + last.getEndDate()
+                    : UPCOMING_PHASE + last.getStartDate();
+            nextCursor = new KeysetCursor(sortKey, last.getId()).encode();
+        }
+        return new CursorPageDto<>(items, nextCursor);
     }
 }
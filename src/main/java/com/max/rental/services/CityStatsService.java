@@ -0,0 +1,108 @@
+package com.max.rental.services;
+
+import com.max.rental.models.entities.CityStats;
+import com.max.rental.models.enums.EnumBookingStatus;
+import com.max.rental.repositories.BookingRepository;
+import com.max.rental.repositories.CityStatsRepository;
+import com.max.rental.repositories.ListingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Поддерживает таблицу city_stats: счётчики меняются в той же транзакции, что и
+ * объявление или бронирование, а периодическая сверка с агрегатами исправляет расхождения.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CityStatsService {
+
+    private final CityStatsRepository cityStatsRepository;
+    private final ListingRepository listingRepository;
+    private final BookingRepository bookingRepository;
+
+    @Transactional
+    public void onListingChanged(String cityBefore, boolean activeBefore, String cityAfter, boolean activeAfter) {
+        if (activeBefore == activeAfter && Objects.equals(cityBefore, cityAfter)) {
+            return;
+        }
+        if (activeBefore && cityBefore != null) {
+            cityStatsRepository.addCounts(cityBefore, -1, 0);
+        }
+        if (activeAfter && cityAfter != null) {
+            cityStatsRepository.addCounts(cityAfter, 1, 0);
+        }
+    }
+
+    @Transactional
+    public void onBookingStatusChanged(String city, EnumBookingStatus before, EnumBookingStatus after) {
+        long delta = (after == EnumBookingStatus.CONFIRMED ? 1 : 0) - (before == EnumBookingStatus.CONFIRMED ? 1 : 0);
+        if (delta != 0 && city != null) {
+            cityStatsRepository.addCounts(city, 0, delta);
+        }
+    }
+
+    /**
+     * Пересчитывает счётчики полными агрегатами и исправляет отличающиеся строки.
+     * Запускается при старте (демо-данные пишутся в обход сервисов) и раз в сутки.
+     * Строки блокируются до чтения агрегатов, как и при сверке рейтингов, чтобы
+     * абсолютные значения не затёрли параллельные дельты.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.city-stats.reconcile-cron:0 30 3 * * *}")
+    @Transactional
+    public void reconcile() {
+        cityStatsRepository.lockAll();
+
+        Map<String, long[]> actual = new HashMap<>();
+        for (Object[] row : listingRepository.getCityStatistics()) {
+            if (row[0] != null) {
+                actual.computeIfAbsent((String) row[0], k -> new long[2])[0] = (Long) row[1];
+            }
+        }
+        for (Object[] row : bookingRepository.getBookingStatisticsByCity()) {
+            if (row[0] != null) {
+                actual.computeIfAbsent((String) row[0], k -> new long[2])[1] = (Long) row[1];
+            }
+        }
+
+        Map<String, CityStats> stored = cityStatsRepository.findAll().stream()
+                .collect(Collectors.toMap(CityStats::getCity, Function.identity()));
+
+        int repaired = 0;
+        for (Map.Entry<String, long[]> entry : actual.entrySet()) {
+            long listings = entry.getValue()[0];
+            long bookings = entry.getValue()[1];
+            CityStats stats = stored.remove(entry.getKey());
+            if (stats == null) {
+                repaired += cityStatsRepository.insertIfAbsent(entry.getKey(), listings, bookings);
+            } else if (stats.getListingCount() != listings || stats.getBookingCount() != bookings) {
+                stats.setCounts(listings, bookings);
+                repaired++;
+            }
+        }
+        for (CityStats orphan : stored.values()) {
+            if (orphan.getPopularityScore() != 0) {
+                repaired++;
+            }
+            cityStatsRepository.delete(orphan);
+        }
+
+        if (repaired > 0) {
+            log.info("Сверка статистики городов: исправлено {} записей", repaired);
+        } else {
+            log.debug("Сверка статистики городов: расхождений нет");
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.max.rental.services;
 
+import com.max.rental.cache.FavoriteIdsCache;
+import com.max.rental.dto.favorite.FavoriteIdSet;
 import com.max.rental.dto.favorite.FavoriteListingDto;
 import com.max.rental.models.entities.Favorite;
 import com.max.rental.models.entities.Listing;
 import com.max.rental.repositories.FavoriteRepository;
 import com.max.rental.repositories.ListingRepository;
 import com.max.rental.security.CurrentUserService;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -15,7 +16,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class FavoriteService {
@@ -25,16 +25,16 @@ public class FavoriteService {
     private final FavoriteRepository favoriteRepository;
     private final ListingRepository listingRepository;
     private final CurrentUserService currentUserService;
-    private final ModelMapper modelMapper;
+    private final FavoriteIdsCache favoriteIdsCache;
 
     public FavoriteService(FavoriteRepository favoriteRepository,
                            ListingRepository listingRepository,
                            CurrentUserService currentUserService,
-                           ModelMapper modelMapper) {
+                           FavoriteIdsCache favoriteIdsCache) {
         this.favoriteRepository = favoriteRepository;
         this.listingRepository = listingRepository;
         this.currentUserService = currentUserService;
-        this.modelMapper = modelMapper;
+        this.favoriteIdsCache = favoriteIdsCache;
     }
 
     @Transactional
@@ -56,6 +56,7 @@ public class FavoriteService {
 
         Favorite favorite = new Favorite(currentUserId, listingId);
         favoriteRepository.save(favorite);
+        favoriteIdsCache.invalidate(currentUserId);
     }
 
     @Transactional
@@ -68,24 +69,34 @@ public class FavoriteService {
         }
 
         favoriteRepository.deleteByRenterIdAndListingId(currentUserId, listingId);
+        favoriteIdsCache.invalidate(currentUserId);
     }
 
     @Transactional(readOnly = true)
     public List<FavoriteListingDto> getFavorites() {
         Long currentUserId = currentUserService.getCurrentUserId();
-        List<Favorite> favorites = favoriteRepository.findAllByRenterId(currentUserId);
-
-        return favorites.stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return favoriteRepository.findFavoriteListings(currentUserId);
     }
 
-    @Transactional(readOnly = true)
     public boolean isFavorite(Long listingId) {
-        Long currentUserId = currentUserService.getCurrentUserId();
-        return favoriteRepository.existsByRenterIdAndListingId(currentUserId, listingId);
+        return getCurrentUserFavoriteIds().contains(listingId);
     }
 
+    /**
+     * Избранное текущего пользователя для отметок в списках объявлений;
+     * для анонимного посетителя - пустое множество.
+     */
+    public FavoriteIdSet getCurrentUserFavoriteIds() {
+        if (!currentUserService.isAuthenticated()) {
+            return FavoriteIdSet.EMPTY;
+        }
+        return getFavoriteIds(currentUserService.getCurrentUserId());
+    }
+
+    public FavoriteIdSet getFavoriteIds(Long userId) {
+        return favoriteIdsCache.get(userId,
+                () -> FavoriteIdSet.of(favoriteRepository.findListingIdsByRenterId(userId)));
+    }
 
     @Transactional
     public boolean toggleFavorite(Long listingId) {
@@ -99,6 +110,7 @@ public class FavoriteService {
                     "Вы не можете добавить собственное объявление в избранное.");
         }
 
+        favoriteIdsCache.invalidate(currentUserId);
         if (favoriteRepository.existsByRenterIdAndListingId(currentUserId, listingId)) {
             favoriteRepository.deleteByRenterIdAndListingId(currentUserId, listingId);
             log.info("Объявление {} удалено из избранного пользователя {}", listingId, currentUserId);
@@ -110,28 +122,4 @@ public class FavoriteService {
             return true;
         }
     }
-
-    private FavoriteListingDto mapToDto(Favorite favorite) {
-        FavoriteListingDto dto = new FavoriteListingDto();
-        dto.setListingId(favorite.getListingId());
-        dto.setAddedAt(favorite.getCreatedAt());
-
-        listingRepository.findById(favorite.getListingId()).ifPresent(listing -> {
-            FavoriteListingDto listingDto = modelMapper.map(listing, FavoriteListingDto.class);
-            dto.setTitle(listingDto.getTitle());
-            dto.setDescription(listing.getDescription());
-            dto.setPricePerNight(listing.getPricePerNight());
-            dto.setAverageRating(listing.getAverageRating());
-
-            if (listing.getAddress() != null) {
-                dto.setCity(listing.getAddress().getCity());
-                dto.setDistrict(listing.getAddress().getDistrict());
-            }
-            if (listing.getPropertyType() != null) {
-                dto.setPropertyType(listing.getPropertyType().getType());
-            }
-        });
-
-        return dto;
-    }
 }
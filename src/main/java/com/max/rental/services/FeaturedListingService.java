@@ -0,0 +1,80 @@
+package com.max.rental.services;
+
+import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.repositories.ListingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Подборка объявлений для главной страницы. Ранжирование - рейтинг, число
+ * подтверждённых бронирований за последние дни и новизна. Подборка считается
+ * по расписанию и кладётся в кэш, запрос страницы только читает готовый результат.
+ */
+@Slf4j
+@Service
+public class FeaturedListingService {
+
+    private static final String CACHE_KEY = "home";
+
+    private final ListingRepository listingRepository;
+    private final ListingService listingService;
+    private final CacheManager cacheManager;
+    private final int size;
+    private final int bookingWindowDays;
+
+    public FeaturedListingService(ListingRepository listingRepository,
+                                  ListingService listingService,
+                                  CacheManager cacheManager,
+                                  @Value("${app.featured.size:6}") int size,
+                                  @Value("${app.featured.booking-window-days:90}") int bookingWindowDays) {
+        this.listingRepository = listingRepository;
+        this.listingService = listingService;
+        this.cacheManager = cacheManager;
+        this.size = size;
+        this.bookingWindowDays = bookingWindowDays;
+    }
+
+    /**
+     * Готовая подборка из кэша. Если кэш пуст (например, Redis очищен до первого обновления),
+     * подборка считается один раз для всех одновременных запросов.
+     */
+    public List<ListingSummaryDto> getFeatured() {
+        return cache().get(CACHE_KEY, this::loadFeatured);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.featured.refresh-ms:300000}",
+               initialDelayString = "${app.featured.refresh-ms:300000}")
+    public void refresh() {
+        try {
+            List<ListingSummaryDto> featured = loadFeatured();
+            cache().put(CACHE_KEY, featured);
+            log.debug("Подборка для главной страницы обновлена: {} объявлений", featured.size());
+        } catch (RuntimeException e) {
+            // Предыдущая подборка остаётся в кэше до следующей попытки
+            log.warn("Не удалось обновить подборку для главной страницы: {}", e.getMessage());
+        }
+    }
+
+    private List<ListingSummaryDto> loadFeatured() {
+        LocalDateTime bookedSince = LocalDateTime.now().minusDays(bookingWindowDays);
+        List<Long> ids = listingRepository.findFeaturedIds(bookedSince, PageRequest.of(0, size));
+        return listingService.getSummaries(ids);
+    }
+
+    private Cache cache() {
+        return Objects.requireNonNull(cacheManager.getCache(RedisCacheConfig.FEATURED_LISTINGS_CACHE));
+    }
+}
@@ -1,25 +1,40 @@
 package com.max.rental.services;
 
+import com.max.rental.cache.ListingDetailsCache;
 import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.dto.CursorPageDto;
 import com.max.rental.dto.listing.ListingFilterDto;
 import com.max.rental.dto.listing.ListingSummaryDto;
 import com.max.rental.dto.listing.ListingDetailsDto;
 import com.max.rental.dto.listing.PopularCityDto;
 import com.max.rental.dto.review.ReviewDto;
+import com.max.rental.mapping.ListingDetailsMapper;
 import com.max.rental.models.entities.Listing;
-import com.max.rental.models.entities.Review;
-import com.max.rental.repositories.BookingRepository;
-import com.max.rental.repositories.FavoriteRepository;
+import com.max.rental.models.enums.EnumListingSortOrder;
+import com.max.rental.repositories.CityStatsRepository;
 import com.max.rental.repositories.ListingRepository;
-import com.max.rental.repositories.ReviewRepository;
+import com.max.rental.search.AvailabilityCalendar;
+import com.max.rental.search.CachedSearchResult;
+import com.max.rental.search.IndexedListing;
+import com.max.rental.search.ListingSearchCache;
+import com.max.rental.search.ListingSearchIndex;
+import com.max.rental.search.PriceCalendar;
+import com.max.rental.search.SearchPageKey;
+import com.max.rental.search.SearchQueryKey;
+import com.max.rental.search.StayPriceFilter;
 import com.max.rental.security.CurrentUserService;
-import org.modelmapper.ModelMapper;
+import com.max.rental.services.support.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,26 +42,46 @@ import java.util.stream.Collectors;
 public class ListingService {
 
     private static final Logger log = LoggerFactory.getLogger(ListingService.class);
+    private static final int MAX_PAGE_SIZE = 50;
 
     private final ListingRepository listingRepository;
-    private final ReviewRepository reviewRepository;
-    private final FavoriteRepository favoriteRepository;
-    private final BookingRepository bookingRepository;
+    private final FavoriteService favoriteService;
+    private final CityStatsRepository cityStatsRepository;
     private final CurrentUserService currentUserService;
-    private final ModelMapper modelMapper;
+    private final ListingSearchIndex listingSearchIndex;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final PriceCalendar priceCalendar;
+    private final ListingSearchCache listingSearchCache;
+    private final ListingDetailsMapper listingDetailsMapper;
+    private final ReviewService reviewService;
+    private final ListingDetailsCache listingDetailsCache;
+    private final TransactionTemplate readOnlyTransaction;
 
     public ListingService(ListingRepository listingRepository,
-                          ReviewRepository reviewRepository,
-                          FavoriteRepository favoriteRepository,
-                          BookingRepository bookingRepository,
+                          FavoriteService favoriteService,
+                          CityStatsRepository cityStatsRepository,
                           CurrentUserService currentUserService,
-                          ModelMapper modelMapper) {
+                          ListingSearchIndex listingSearchIndex,
+                          AvailabilityCalendar availabilityCalendar,
+                          PriceCalendar priceCalendar,
+                          ListingSearchCache listingSearchCache,
+                          ListingDetailsMapper listingDetailsMapper,
+                          ReviewService reviewService,
+                          ListingDetailsCache listingDetailsCache,
+                          PlatformTransactionManager transactionManager) {
         this.listingRepository = listingRepository;
-        this.reviewRepository = reviewRepository;
-        this.favoriteRepository = favoriteRepository;
-        this.bookingRepository = bookingRepository;
+        this.favoriteService = favoriteService;
+        this.cityStatsRepository = cityStatsRepository;
         this.currentUserService = currentUserService;
-        this.modelMapper = modelMapper;
+        this.listingSearchIndex = listingSearchIndex;
+        this.availabilityCalendar = availabilityCalendar;
+        this.priceCalendar = priceCalendar;
+        this.listingSearchCache = listingSearchCache;
+        this.listingDetailsMapper = listingDetailsMapper;
+        this.reviewService = reviewService;
+        this.listingDetailsCache = listingDetailsCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     private String formatSearchParam(String input) {
@@ -56,155 +91,260 @@ public class ListingService {
         return "%" + input.trim().toLowerCase() + "%";
     }
 
-    @Transactional(readOnly = true)
-    public ListingDetailsDto getListingDetails(Long listingId) {
-        Listing listing = listingRepository.findById(listingId)
-                .orElseThrow(() -> new RuntimeException("Объявление не найдено: " + listingId));
-
-        return mapToDetailsDto(listing);
+    private String formatTypeParam(String input) {
+        if (input == null || input.trim().isEmpty()) {
+            return null;
+        }
+        return input.trim().toUpperCase();
     }
 
-    private ListingDetailsDto mapToDetailsDto(Listing listing) {
-        ListingDetailsDto dto = modelMapper.map(listing, ListingDetailsDto.class);
+    /**
+     * Страница объявления: общая часть читается из {@link ListingDetailsCache},
+     * признаки текущего пользователя накладываются на копию. Транзакция открывается
+     * только при промахе кэша, чтобы повторный просмотр не занимал соединение с БД.
+     */
+    public ListingDetailsDto getListingDetails(Long listingId) {
+        ListingDetailsDto shared = listingDetailsCache.get(listingId,
+                () -> readOnlyTransaction.execute(status -> loadListingDetails(listingId)));
+        return applyViewer(shared);
+    }
 
-        dto.setCity(listing.getAddress().getCity());
-        dto.setDistrict(listing.getAddress().getDistrict());
-        dto.setPropertyType(listing.getPropertyType().getType());
+    private ListingDetailsDto loadListingDetails(Long listingId) {
+        Listing listing = listingRepository.findDetailsById(listingId)
+                .orElseThrow(() -> new RuntimeException("Объявление не найдено: " + listingId));
 
-        dto.setOwnerId(listing.getOwner().getId());
-        dto.setOwnerFullName(listing.getOwner().getFullName());
-        dto.setOwnerRating(listing.getOwner().getOwnerRating());
+        ListingDetailsDto dto = listingDetailsMapper.map(listing);
 
-        List<Review> reviews = reviewRepository.findByListingIdOrderByCreatedAtDesc(listing.getId());
-        dto.setReviews(reviews.stream().map(this::mapToReviewDto).collect(Collectors.toList()));
+        CursorPageDto<ReviewDto> firstPage = reviewService.getListingReviewsPage(
+                listingId, null, ReviewService.DEFAULT_PAGE_SIZE);
+        dto.setReviews(firstPage.getItems());
+        dto.setReviewsNextCursor(firstPage.getNextCursor());
 
         dto.setAvailableForBooking(true);
+        return dto;
+    }
 
+    private ListingDetailsDto applyViewer(ListingDetailsDto shared) {
+        ListingDetailsDto dto = shared.copy();
+        if (!currentUserService.isAuthenticated()) {
+            log.debug("Неавторизованный пользователь просматривает объявление {}", dto.getId());
+            return dto;
+        }
         try {
             Long currentUserId = currentUserService.getCurrentUserId();
 
-            dto.setCurrentUserOwner(listing.getOwner().getId().equals(currentUserId));
+            dto.setCurrentUserOwner(Objects.equals(dto.getOwnerId(), currentUserId));
 
-            dto.setFavorite(favoriteRepository.existsByRenterIdAndListingId(currentUserId, listing.getId()));
+            dto.setFavorite(favoriteService.getFavoriteIds(currentUserId).contains(dto.getId()));
 
             log.debug("Пользователь {} просматривает объявление {}. Владелец: {}, В избранном: {}",
-                    currentUserId, listing.getId(), dto.isCurrentUserOwner(), dto.isFavorite());
+                    currentUserId, dto.getId(), dto.isCurrentUserOwner(), dto.isFavorite());
         } catch (Exception e) {
             dto.setCurrentUserOwner(false);
             dto.setFavorite(false);
-            log.debug("Неавторизованный пользователь просматривает объявление {}", listing.getId());
+            log.debug("Не удалось определить пользователя для объявления {}", dto.getId());
         }
-
         return dto;
     }
 
-    private ReviewDto mapToReviewDto(Review review) {
-        ReviewDto dto = modelMapper.map(review, ReviewDto.class);
-        dto.setGuestName(review.getGuest().getFirstName());
+    /**
+     * Страница поиска. Кэш поиска хранит по фильтру, сортировке, курсору и размеру
+     * страницы только id и курсор следующей страницы, карточки читаются из кэша карточек.
+     * Транзакция открывается только при промахе кэша.
+     */
+    public CursorPageDto<ListingSummaryDto> searchListingsPage(ListingFilterDto filter,
+                                                              EnumListingSortOrder sortOrder,
+                                                              String cursor,
+                                                              int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor)
+                .filter(decoded -> fitsSortOrder(decoded, sortOrder))
+                .orElse(null);
+        if (after == null && cursor != null && !cursor.isBlank()) {
+            log.debug("Курсор '{}' не подходит к сортировке {}, возвращаем первую страницу", cursor, sortOrder);
+        }
+
+        SearchPageKey key = new SearchPageKey(SearchQueryKey.of(filter), sortOrder,
+                after != null ? after.encode() : null, pageSize);
+        CachedSearchResult page = listingSearchCache.getPage(key,
+                () -> readOnlyTransaction.execute(status -> findPage(filter, sortOrder, after, pageSize)));
+        return new CursorPageDto<>(findSummariesInOrder(page.getListingIds()), page.getNextCursor());
+    }
 
-        if (review.getCreatedAt() != null) {
-            dto.setReviewDate(review.getCreatedAt().toLocalDate());
+    private static boolean fitsSortOrder(KeysetCursor cursor, EnumListingSortOrder sortOrder) {
+        try {
+            if (sortOrder == EnumListingSortOrder.PRICE_ASC || sortOrder == EnumListingSortOrder.PRICE_DESC) {
+                new BigDecimal(cursor.sortKey());
+            } else if (sortOrder == EnumListingSortOrder.RATING_DESC) {
+                Double.valueOf(cursor.sortKey());
+            }
+            return true;
+        } catch (NumberFormatException | NullPointerException e) {
+            return false;
         }
+    }
 
-        return dto;
+    private CachedSearchResult findPage(ListingFilterDto filter, EnumListingSortOrder sortOrder,
+                                        KeysetCursor after, int pageSize) {
+        log.debug("Cache miss - executing search page query for filter: {}, sort: {}", filter, sortOrder);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        boolean priceOrder = sortOrder == EnumListingSortOrder.PRICE_ASC || sortOrder == EnumListingSortOrder.PRICE_DESC;
+        BigDecimal afterPrice = after != null && priceOrder ? new BigDecimal(after.sortKey()) : null;
+        Double afterRating = after != null && sortOrder == EnumListingSortOrder.RATING_DESC
+                ? Double.valueOf(after.sortKey()) : null;
+        Long afterId = after != null ? after.id() : null;
+        StayPriceFilter stayPrice = stayPriceFilter(filter);
+
+        // Без поправки на правила цен страницу собирает индекс, иначе - SQL-запрос
+        Optional<List<IndexedListing>> indexed = stayPrice.isNone()
+                ? findIndexedPage(filter, sortOrder, afterPrice, afterId, pageSize + 1)
+                : Optional.empty();
+        if (indexed.isPresent()) {
+            List<IndexedListing> docs = indexed.get();
+            boolean hasNext = docs.size() > pageSize;
+            List<IndexedListing> items = hasNext ? docs.subList(0, pageSize) : docs;
+            String nextCursor = null;
+            if (hasNext) {
+                IndexedListing last = items.get(items.size() - 1);
+                String sortKey = priceOrder ? last.pricePerNight().toPlainString() : null;
+                nextCursor = new KeysetCursor(sortKey, last.id()).encode();
+            }
+            return new CachedSearchResult(items.stream().map(IndexedListing::id).collect(Collectors.toList()),
+                    nextCursor);
+        }
+
+        String city = formatSearchParam(filter.getCity());
+        String district = formatSearchParam(filter.getDistrict());
+        String type = formatTypeParam(filter.getPropertyType());
+        List<Long> included = stayPrice.includedIds();
+        List<Long> excluded = stayPrice.excludedIds();
+
+        List<ListingSummaryDto> listings = switch (sortOrder) {
+            case PRICE_ASC -> listingRepository.findPageOrderByPriceAsc(
+                    city, district, type, filter.getMinPrice(), filter.getMaxPrice(), filter.getFloor(),
+                    included, excluded, filter.getStartDate(), filter.getEndDate(), afterPrice, afterId, limit);
+            case PRICE_DESC -> listingRepository.findPageOrderByPriceDesc(
+                    city, district, type, filter.getMinPrice(), filter.getMaxPrice(), filter.getFloor(),
+                    included, excluded, filter.getStartDate(), filter.getEndDate(), afterPrice, afterId, limit);
+            case RATING_DESC -> listingRepository.findPageOrderByRatingDesc(
+                    city, district, type, filter.getMinPrice(), filter.getMaxPrice(), filter.getFloor(),
+                    included, excluded, filter.getStartDate(), filter.getEndDate(), afterRating, afterId, limit);
+            default -> listingRepository.findPageOrderById(
+                    city, district, type, filter.getMinPrice(), filter.getMaxPrice(), filter.getFloor(),
+                    included, excluded, filter.getStartDate(), filter.getEndDate(), afterId, limit);
+        };
+
+        boolean hasNext = listings.size() > pageSize;
+        List<ListingSummaryDto> items = hasNext ? listings.subList(0, pageSize) : listings;
+        // Карточки страницы уже прочитаны - кладём их в кэш карточек
+        listingSearchCache.putSummaries(items);
+
+        String nextCursor = null;
+        if (hasNext) {
+            ListingSummaryDto last = items.get(items.size() - 1);
+            nextCursor = new KeysetCursor(sortKeyOf(last, sortOrder), last.getId()).encode();
+        }
+        return new CachedSearchResult(items.stream().map(ListingSummaryDto::getId).collect(Collectors.toList()),
+                nextCursor);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = RedisCacheConfig.LISTING_SEARCH_CACHE,
-               key = "T(java.util.Objects).hash(#filter.city, #filter.district, #filter.propertyType, " +
-                     "#filter.minPrice, #filter.maxPrice, #filter.floor, #filter.startDate, #filter.endDate)")
-    public List<ListingSummaryDto> searchListings(ListingFilterDto filter) {
-        log.debug("Cache miss - executing search query for filter: {}", filter);
-
-        String cityFilter = formatSearchParam(filter.getCity());
-        String districtFilter = formatSearchParam(filter.getDistrict());
-
-        String typeFilter = filter.getPropertyType();
-        if (typeFilter != null && !typeFilter.trim().isEmpty()) {
-            typeFilter = typeFilter.toUpperCase();
-        } else {
-            typeFilter = null;
+    /**
+     * Страница по поисковому индексу и календарю занятости в том же порядке и с тем же
+     * курсором, что и SQL-запросы страницы. Пустой Optional - индекс или календарь
+     * не могут ответить (не построены, сортировка по рейтингу, даты за горизонтом).
+     */
+    private Optional<List<IndexedListing>> findIndexedPage(ListingFilterDto filter, EnumListingSortOrder sortOrder,
+                                                           BigDecimal afterPrice, Long afterId, int limit) {
+        if (sortOrder == EnumListingSortOrder.RATING_DESC) {
+            return Optional.empty();
+        }
+        Optional<List<IndexedListing>> matches = listingSearchIndex.search(filter);
+        if (matches.isEmpty()) {
+            return Optional.empty();
         }
 
-        List<Listing> listings;
-
-        if (filter.getStartDate() != null && filter.getEndDate() != null) {
-            listings = listingRepository.findWithAllFilters(
-                    cityFilter,
-                    districtFilter,
-                    typeFilter,
-                    filter.getMinPrice(),
-                    filter.getMaxPrice(),
-                    filter.getFloor(),
-                    filter.getStartDate(),
-                    filter.getEndDate()
-            );
-        } else {
-            listings = listingRepository.findWithBaseFilters(
-                    cityFilter,
-                    districtFilter,
-                    typeFilter,
-                    filter.getMinPrice(),
-                    filter.getMaxPrice(),
-                    filter.getFloor()
-            );
+        Comparator<IndexedListing> order = switch (sortOrder) {
+            case PRICE_ASC -> Comparator.comparing(IndexedListing::pricePerNight)
+                    .thenComparing(IndexedListing::id);
+            case PRICE_DESC -> Comparator.comparing(IndexedListing::pricePerNight, Comparator.reverseOrder())
+                    .thenComparing(IndexedListing::id);
+            default -> Comparator.comparing(IndexedListing::id);
+        };
+        List<IndexedListing> docs = matches.get().stream()
+                .filter(doc -> afterId == null || isAfter(doc, sortOrder, afterPrice, afterId))
+                .sorted(order)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        if (filter.getStartDate() != null && filter.getEndDate() != null && !docs.isEmpty()) {
+            List<Long> ids = docs.stream().map(IndexedListing::id).collect(Collectors.toList());
+            Optional<List<Long>> available = availabilityCalendar
+                    .filterAvailable(ids, filter.getStartDate(), filter.getEndDate());
+            if (available.isEmpty()) {
+                return Optional.empty();
+            }
+            Set<Long> availableIds = new HashSet<>(available.get());
+            docs.removeIf(doc -> !availableIds.contains(doc.id()));
         }
+        return Optional.of(docs.size() > limit ? new ArrayList<>(docs.subList(0, limit)) : docs);
+    }
 
-        return listings.stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+    private static boolean isAfter(IndexedListing doc, EnumListingSortOrder sortOrder,
+                                   BigDecimal afterPrice, Long afterId) {
+        int byPrice = switch (sortOrder) {
+            case PRICE_ASC -> doc.pricePerNight().compareTo(afterPrice);
+            case PRICE_DESC -> afterPrice.compareTo(doc.pricePerNight());
+            default -> 0;
+        };
+        return byPrice > 0 || (byPrice == 0 && doc.id() > afterId);
     }
 
-    private ListingSummaryDto mapToDto(Listing listing) {
-        ListingSummaryDto dto = modelMapper.map(listing, ListingSummaryDto.class);
+    private String sortKeyOf(ListingSummaryDto listing, EnumListingSortOrder sortOrder) {
+        return switch (sortOrder) {
+            case PRICE_ASC, PRICE_DESC -> listing.getPricePerNight().toPlainString();
+            // Как COALESCE(l.averageRating, 0.0) в запросе страницы
+            case RATING_DESC -> String.valueOf(listing.getRating() != null ? listing.getRating() : 0.0);
+            default -> null;
+        };
+    }
 
-        String desc = listing.getDescription();
-        dto.setDescription(desc != null && desc.length() > 100 ? desc.substring(0, 100) + "..." : desc);
+    private StayPriceFilter stayPriceFilter(ListingFilterDto filter) {
+        return priceCalendar.stayPriceFilter(filter.getStartDate(), filter.getEndDate(),
+                filter.getMinPrice(), filter.getMaxPrice());
+    }
 
-        if (listing.getAddress() != null) {
-            dto.setCity(listing.getAddress().getCity());
-            dto.setDistrict(listing.getAddress().getDistrict());
-        }
-        if (listing.getPropertyType() != null) {
-            dto.setType(listing.getPropertyType().getType());
-        }
-        return dto;
+    /**
+     * Карточки объявлений в порядке переданных id; отсутствующие id пропускаются.
+     * Без транзакции: при попадании в кэш соединение с БД не берётся.
+     */
+    public List<ListingSummaryDto> getSummaries(List<Long> ids) {
+        return findSummariesInOrder(ids);
     }
 
-    @Transactional(readOnly = true)
-    @Cacheable(value = RedisCacheConfig.POPULAR_CITIES_CACHE, key = "#limit")
-    public List<PopularCityDto> getPopularCities(int limit) {
-        log.debug("Cache miss - fetching popular cities with limit: {}", limit);
-        List<Object[]> cityStats = listingRepository.getCityStatistics();
-        Map<String, Long> listingsMap = new HashMap<>();
-        for (Object[] row : cityStats) {
-            String city = (String) row[0];
-            Long count = (Long) row[1];
-            listingsMap.put(city, count);
+    private List<ListingSummaryDto> findSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        Map<Long, ListingSummaryDto> summaries = listingSearchCache.getSummaries(ids);
 
-        List<Object[]> bookingStats = bookingRepository.getBookingStatisticsByCity();
-        Map<String, Long> bookingsMap = new HashMap<>();
-        for (Object[] row : bookingStats) {
-            String city = (String) row[0];
-            Long count = (Long) row[1];
-            bookingsMap.put(city, count);
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !summaries.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            List<ListingSummaryDto> loaded = listingRepository.findSummariesByIdIn(missingIds);
+            loaded.forEach(dto -> summaries.put(dto.getId(), dto));
+            listingSearchCache.putSummaries(loaded);
         }
 
-        Set<String> allCities = new HashSet<>();
-        allCities.addAll(listingsMap.keySet());
-        allCities.addAll(bookingsMap.keySet());
-
-        List<PopularCityDto> popularCities = allCities.stream()
-                .map(city -> new PopularCityDto(
-                        city,
-                        listingsMap.getOrDefault(city, 0L),
-                        bookingsMap.getOrDefault(city, 0L)
-                ))
-                .sorted(Comparator.comparing(PopularCityDto::getPopularityScore).reversed())
-                .limit(limit)
+        return ids.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+    }
 
-        return popularCities;
+    @Transactional(readOnly = true)
+    @Cacheable(value = RedisCacheConfig.POPULAR_CITIES_CACHE, key = "#limit", sync = true)
+    public List<PopularCityDto> getPopularCities(int limit) {
+        log.debug("Cache miss - fetching popular cities with limit: {}", limit);
+        return cityStatsRepository.findTopCities(PageRequest.of(0, limit));
     }
 }
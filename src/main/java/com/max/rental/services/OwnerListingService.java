@@ -1,26 +1,31 @@
 package com.max.rental.services;
 
-import com.max.rental.config.RedisCacheConfig;
+import com.max.rental.cache.ListingDetailsCache;
+import com.max.rental.cache.OwnerDashboardCache;
 import com.max.rental.dto.booking.OwnerBookingDto;
 import com.max.rental.dto.listing.ListingCreateDto;
 import com.max.rental.dto.listing.ListingEditDto;
+import com.max.rental.dto.listing.OwnerDashboardDto;
 import com.max.rental.dto.listing.OwnerListingDto;
+import com.max.rental.dto.listing.OwnerStatsDto;
+import com.max.rental.mapping.ListingEditMapper;
+import com.max.rental.mapping.OwnerBookingMapper;
 import com.max.rental.models.entities.Address;
 import com.max.rental.models.entities.Booking;
 import com.max.rental.models.entities.Listing;
 import com.max.rental.models.entities.PropertyType;
 import com.max.rental.models.entities.User;
-import com.max.rental.models.enums.EnumBookingStatus;
 import com.max.rental.models.enums.EnumListingStatus;
 import com.max.rental.repositories.BookingRepository;
 import com.max.rental.repositories.ListingRepository;
 import com.max.rental.repositories.PropertyTypeRepository;
+import com.max.rental.search.IndexedListing;
+import com.max.rental.search.ListingSearchCache;
+import com.max.rental.search.ListingSearchIndex;
+import com.max.rental.search.PriceCalendar;
 import com.max.rental.security.CurrentUserService;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -28,7 +33,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -41,44 +45,75 @@ public class OwnerListingService {
     private final PropertyTypeRepository propertyTypeRepository;
     private final BookingRepository bookingRepository;
     private final CurrentUserService currentUserService;
-    private final ModelMapper modelMapper;
+    private final ListingSearchIndex listingSearchIndex;
+    private final ListingSearchCache listingSearchCache;
+    private final ListingDetailsCache listingDetailsCache;
+    private final PriceCalendar priceCalendar;
+    private final CityStatsService cityStatsService;
+    private final OwnerDashboardCache ownerDashboardCache;
+    private final ListingEditMapper listingEditMapper;
+    private final OwnerBookingMapper ownerBookingMapper;
 
     public OwnerListingService(ListingRepository listingRepository,
                                PropertyTypeRepository propertyTypeRepository,
                                BookingRepository bookingRepository,
                                CurrentUserService currentUserService,
-                               ModelMapper modelMapper) {
+                               ListingSearchIndex listingSearchIndex,
+                               ListingSearchCache listingSearchCache,
+                               ListingDetailsCache listingDetailsCache,
+                               PriceCalendar priceCalendar,
+                               CityStatsService cityStatsService,
+                               OwnerDashboardCache ownerDashboardCache,
+                               ListingEditMapper listingEditMapper,
+                               OwnerBookingMapper ownerBookingMapper) {
         this.listingRepository = listingRepository;
         this.propertyTypeRepository = propertyTypeRepository;
         this.bookingRepository = bookingRepository;
         this.currentUserService = currentUserService;
-        this.modelMapper = modelMapper;
+        this.listingSearchIndex = listingSearchIndex;
+        this.listingSearchCache = listingSearchCache;
+        this.listingDetailsCache = listingDetailsCache;
+        this.priceCalendar = priceCalendar;
+        this.cityStatsService = cityStatsService;
+        this.ownerDashboardCache = ownerDashboardCache;
+        this.listingEditMapper = listingEditMapper;
+        this.ownerBookingMapper = ownerBookingMapper;
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Объявления владельца со счётчиками и сводка по статусам. Снимок читается из
+     * {@link OwnerDashboardCache}; при промахе это два запроса с группировкой.
+     */
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    public List<OwnerListingDto> getMyListings() {
+    public OwnerDashboardDto getDashboard() {
         Long ownerId = currentUserService.getCurrentUserId();
-        List<Listing> listings = listingRepository.findAllByOwnerIdOrderByCreatedAtDesc(ownerId);
-        return listings.stream().map(this::mapToOwnerDto).collect(Collectors.toList());
+        return ownerDashboardCache.get(ownerId, () -> loadDashboard(ownerId));
     }
 
-    @Transactional(readOnly = true)
-    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    public List<OwnerListingDto> getMyListingsByStatus(EnumListingStatus status) {
-        Long ownerId = currentUserService.getCurrentUserId();
-        List<Listing> listings = listingRepository.findAllByOwnerIdAndStatusOrderByCreatedAtDesc(ownerId, status);
-        return listings.stream().map(this::mapToOwnerDto).collect(Collectors.toList());
+    private OwnerDashboardDto loadDashboard(Long ownerId) {
+        LocalDate today = LocalDate.now();
+        List<OwnerListingDto> listings = listingRepository.findOwnerSummaries(ownerId, today);
+
+        OwnerStatsDto stats = new OwnerStatsDto();
+        for (Object[] row : listingRepository.countByOwnerIdGroupByStatus(ownerId)) {
+            long count = (Long) row[1];
+            stats.setTotalListings(stats.getTotalListings() + count);
+            switch ((EnumListingStatus) row[0]) {
+                case ACTIVE -> stats.setActiveListings(count);
+                case DRAFT -> stats.setDraftListings(count);
+                case INACTIVE -> stats.setInactiveListings(count);
+            }
+        }
+        return new OwnerDashboardDto(listings, stats, today);
     }
 
     @Transactional(readOnly = true)
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public OwnerListingDto getMyListing(Long listingId) {
         Long ownerId = currentUserService.getCurrentUserId();
-        Listing listing = listingRepository.findByIdAndOwnerId(listingId, ownerId)
+        return listingRepository.findOwnerSummary(listingId, ownerId, LocalDate.now())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Объявление не найдено или вы не являетесь его владельцем"));
-        return mapToOwnerDto(listing);
     }
 
     @Transactional(readOnly = true)
@@ -88,7 +123,7 @@ public class OwnerListingService {
         Listing listing = listingRepository.findByIdAndOwnerId(listingId, ownerId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Объявление не найдено"));
-        return mapToEditDto(listing);
+        return listingEditMapper.map(listing);
     }
 
     @Transactional(readOnly = true)
@@ -105,7 +140,7 @@ public class OwnerListingService {
         List<Booking> bookings = bookingRepository.findAllByListingIdOrderByStartDateDesc(listingId);
 
         return bookings.stream()
-                .map(this::mapToOwnerBookingDto)
+                .map(ownerBookingMapper::map)
                 .collect(Collectors.toList());
     }
 
@@ -120,13 +155,9 @@ public class OwnerListingService {
 
     @Transactional
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    @Caching(evict = {
-            @CacheEvict(value = RedisCacheConfig.LISTING_SEARCH_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.POPULAR_CITIES_CACHE, allEntries = true)
-    })
     public Long createListing(ListingCreateDto dto) {
-        User owner = currentUserService.getCurrentUser();
-        log.info("Пользователь {} создаёт объявление: {}", owner.getEmail(), dto.getTitle());
+        User owner = currentUserService.getCurrentUserReference();
+        log.info("Пользователь {} создаёт объявление: {}", owner.getId(), dto.getTitle());
 
         validateCreateDto(dto);
 
@@ -155,20 +186,22 @@ public class OwnerListingService {
                 EnumListingStatus.ACTIVE : EnumListingStatus.DRAFT);
 
         Listing saved = listingRepository.save(listing);
+        listingSearchIndex.onListingChanged(saved);
+        listingSearchCache.onListingChanged(null, IndexedListing.from(saved));
+        cityStatsService.onListingChanged(null, false,
+                address.getCity(), saved.getStatus() == EnumListingStatus.ACTIVE);
+        ownerDashboardCache.invalidate(owner.getId());
         return saved.getId();
     }
 
     @Transactional
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    @Caching(evict = {
-            @CacheEvict(value = RedisCacheConfig.LISTING_SEARCH_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.POPULAR_CITIES_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.LISTING_DETAILS_CACHE, key = "#listingId")
-    })
     public void updateListing(Long listingId, ListingEditDto dto) {
         Long ownerId = currentUserService.getCurrentUserId();
         Listing listing = listingRepository.findByIdAndOwnerId(listingId, ownerId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
+        IndexedListing before = IndexedListing.from(listing);
+        boolean wasActive = listing.getStatus() == EnumListingStatus.ACTIVE;
 
         if (dto.getTitle() != null) listing.setTitle(dto.getTitle().trim());
         if (dto.getDescription() != null) listing.setDescription(dto.getDescription().trim());
@@ -192,39 +225,49 @@ public class OwnerListingService {
         }
 
         listingRepository.save(listing);
+        listingSearchIndex.onListingChanged(listing);
+        listingSearchCache.onListingChanged(before, IndexedListing.from(listing));
+        listingSearchCache.evictSummary(listingId);
+        listingDetailsCache.invalidate(listingId);
+        // Базовая цена входит в скомпилированные цены ночей без правил
+        if (priceCalendar.hasRules(listingId)
+                && listing.getPricePerNight().compareTo(before.pricePerNight()) != 0) {
+            priceCalendar.onPricingChanged(listingId);
+            listingSearchCache.onPricingChanged(IndexedListing.from(listing));
+        }
+        cityStatsService.onListingChanged(before.city(), wasActive,
+                listing.getAddress().getCity(), listing.getStatus() == EnumListingStatus.ACTIVE);
+        ownerDashboardCache.invalidate(ownerId);
     }
 
     @Transactional
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    @Caching(evict = {
-            @CacheEvict(value = RedisCacheConfig.LISTING_SEARCH_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.POPULAR_CITIES_CACHE, allEntries = true),
-            @CacheEvict(value = RedisCacheConfig.LISTING_DETAILS_CACHE, key = "#listingId")
-    })
     public void changeListingStatus(Long listingId, EnumListingStatus newStatus) {
-        Long ownerId = currentUserService.getCurrentUserId();
-        Listing listing = listingRepository.findByIdAndOwnerId(listingId, ownerId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
-        listing.setStatus(newStatus);
-        listingRepository.save(listing);
+        applyStatus(listingId, newStatus);
     }
 
     @Transactional
     @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
     public void deleteListing(Long listingId) {
-        changeListingStatus(listingId, EnumListingStatus.INACTIVE);
+        applyStatus(listingId, EnumListingStatus.INACTIVE);
     }
 
-    @Transactional(readOnly = true)
-    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
-    public OwnerStatsDto getOwnerStats() {
+    // Общий код смены статуса: вызов через this не проходит через прокси, поэтому без аннотаций
+    private void applyStatus(Long listingId, EnumListingStatus newStatus) {
         Long ownerId = currentUserService.getCurrentUserId();
-        OwnerStatsDto stats = new OwnerStatsDto();
-        stats.setTotalListings(listingRepository.countByOwnerId(ownerId));
-        stats.setActiveListings(listingRepository.countByOwnerIdAndStatus(ownerId, EnumListingStatus.ACTIVE));
-        stats.setDraftListings(listingRepository.countByOwnerIdAndStatus(ownerId, EnumListingStatus.DRAFT));
-        stats.setInactiveListings(listingRepository.countByOwnerIdAndStatus(ownerId, EnumListingStatus.INACTIVE));
-        return stats;
+        Listing listing = listingRepository.findByIdAndOwnerId(listingId, ownerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
+        boolean wasActive = listing.getStatus() == EnumListingStatus.ACTIVE;
+        listing.setStatus(newStatus);
+        listingRepository.save(listing);
+        listingSearchIndex.onListingChanged(listing);
+        IndexedListing snapshot = IndexedListing.from(listing);
+        listingSearchCache.onListingChanged(snapshot, snapshot);
+        listingSearchCache.evictSummary(listingId);
+        listingDetailsCache.invalidate(listingId);
+        cityStatsService.onListingChanged(snapshot.city(), wasActive,
+                snapshot.city(), newStatus == EnumListingStatus.ACTIVE);
+        ownerDashboardCache.invalidate(ownerId);
     }
 
     private void validateCreateDto(ListingCreateDto dto) {
@@ -237,97 +280,4 @@ public class OwnerListingService {
         if (dto.getCity() == null)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Город обязателен");
     }
-
-    private OwnerListingDto mapToOwnerDto(Listing listing) {
-        OwnerListingDto dto = modelMapper.map(listing, OwnerListingDto.class);
-
-        if (listing.getAddress() != null) {
-            dto.setCity(listing.getAddress().getCity());
-            dto.setDistrict(listing.getAddress().getDistrict());
-        }
-        if (listing.getPropertyType() != null) {
-            dto.setPropertyType(listing.getPropertyType().getType());
-        }
-
-        if (listing.getBookings() != null) {
-            dto.setTotalBookings(listing.getBookings().size());
-            dto.setActiveBookings((int) listing.getBookings().stream()
-                    .filter(b -> b.getStatus() == EnumBookingStatus.CONFIRMED && b.getEndDate().isAfter(LocalDate.now()))
-                    .count());
-        }
-        if (listing.getReviews() != null) {
-            dto.setReviewCount(listing.getReviews().size());
-        }
-        return dto;
-    }
-
-    private ListingEditDto mapToEditDto(Listing listing) {
-        ListingEditDto dto = modelMapper.map(listing, ListingEditDto.class);
-
-        if (listing.getPropertyType() != null) {
-            dto.setPropertyType(listing.getPropertyType().getType());
-        }
-        if (listing.getAddress() != null) {
-            dto.setCity(listing.getAddress().getCity());
-            dto.setDistrict(listing.getAddress().getDistrict());
-        }
-        dto.setStatus(listing.getStatus().name());
-
-        return dto;
-    }
-
-    private OwnerBookingDto mapToOwnerBookingDto(Booking booking) {
-        OwnerBookingDto dto = modelMapper.map(booking, OwnerBookingDto.class);
-
-        dto.setNights(ChronoUnit.DAYS.between(booking.getStartDate(), booking.getEndDate()));
-
-        User renter = booking.getRenter();
-        if (renter != null) {
-            dto.setRenterId(renter.getId());
-            dto.setRenterName(renter.getFullName());
-            dto.setRenterEmail(renter.getEmail());
-            dto.setRenterPhone(renter.getPhone());
-        }
-
-        return dto;
-    }
-
-    public static class OwnerStatsDto {
-        private long totalListings;
-        private long activeListings;
-        private long draftListings;
-        private long inactiveListings;
-
-        public long getTotalListings() {
-            return totalListings;
-        }
-
-        public void setTotalListings(long totalListings) {
-            this.totalListings = totalListings;
-        }
-
-        public long getActiveListings() {
-            return activeListings;
-        }
-
-        public void setActiveListings(long activeListings) {
-            this.activeListings = activeListings;
-        }
-
-        public long getDraftListings() {
-            return draftListings;
-        }
-
-        public void setDraftListings(long draftListings) {
-            this.draftListings = draftListings;
-        }
-
-        public long getInactiveListings() {
-            return inactiveListings;
-        }
-
-        public void setInactiveListings(long inactiveListings) {
-            this.inactiveListings = inactiveListings;
-        }
-    }
 }
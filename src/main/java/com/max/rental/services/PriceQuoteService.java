@@ -0,0 +1,114 @@
+package com.max.rental.services;
+
+import com.max.rental.dto.booking.PriceCalculationDto;
+import com.max.rental.dto.booking.PriceQuoteDto;
+import com.max.rental.dto.booking.PriceQuoteRequestDto;
+import com.max.rental.dto.listing.ListingSummaryDto;
+import com.max.rental.search.PriceCalendar;
+import com.max.rental.services.support.MinorUnits;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Расчёт стоимости проживания. Базовая цена за ночь берётся из кэша карточек
+ * объявлений (он сбрасывается при изменении объявления), стоимость ночей с учётом
+ * правил цен - из {@link PriceCalendar}. Вся арифметика - в копейках на long,
+ * в BigDecimal переводится только готовый результат.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceQuoteService {
+
+    public static final int MAX_BATCH_SIZE = 100;
+
+    // Сервисный сбор 5% с округлением HALF_UP до копейки
+    private static final long SERVICE_FEE_PERCENT = 5;
+
+    private final ListingService listingService;
+    private final PriceCalendar priceCalendar;
+
+    public PriceCalculationDto quote(Long listingId, LocalDate startDate, LocalDate endDate) {
+        long nights = nights(startDate, endDate);
+        List<ListingSummaryDto> summaries = listingService.getSummaries(List.of(listingId));
+        if (summaries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено");
+        }
+        long nightlyPrice = MinorUnits.of(summaries.get(0).getPricePerNight());
+        return calculate(nightlyPrice, nights,
+                priceCalendar.stayTotal(listingId, nightlyPrice, startDate, endDate));
+    }
+
+    /**
+     * Пакетный расчёт для сетки результатов поиска. Цены всех объявлений читаются
+     * одним обращением к кэшу; ошибка в одной позиции не прерывает остальные.
+     */
+    public List<PriceQuoteDto> quoteAll(List<PriceQuoteRequestDto> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Не больше " + MAX_BATCH_SIZE + " позиций в одном запросе");
+        }
+
+        List<Long> ids = requests.stream()
+                .map(PriceQuoteRequestDto::getListingId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<Long, Long> nightlyPrices = new HashMap<>();
+        for (ListingSummaryDto summary : listingService.getSummaries(ids)) {
+            nightlyPrices.put(summary.getId(), MinorUnits.of(summary.getPricePerNight()));
+        }
+
+        List<PriceQuoteDto> quotes = new ArrayList<>(requests.size());
+        for (PriceQuoteRequestDto request : requests) {
+            PriceQuoteDto quote = new PriceQuoteDto(
+                    request.getListingId(), request.getStartDate(), request.getEndDate(), null, null);
+            try {
+                long nights = nights(request.getStartDate(), request.getEndDate());
+                Long nightlyPrice = nightlyPrices.get(request.getListingId());
+                if (nightlyPrice == null) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено");
+                }
+                quote.setPrice(calculate(nightlyPrice, nights, priceCalendar.stayTotal(
+                        request.getListingId(), nightlyPrice, request.getStartDate(), request.getEndDate())));
+            } catch (ResponseStatusException e) {
+                quote.setError(e.getReason());
+            }
+            quotes.add(quote);
+        }
+        log.debug("Пакетный расчёт стоимости: {} позиций, {} объявлений", requests.size(), ids.size());
+        return quotes;
+    }
+
+    /**
+     * Для неотрицательной суммы (subtotal * 5 + 50) / 100 в целых числах совпадает с
+     * subtotal * 0.05 и setScale(2, HALF_UP): остаток 50 и больше округляется вверх.
+     */
+    private static PriceCalculationDto calculate(long nightlyPrice, long nights, long subtotal) {
+        long serviceFee = (Math.multiplyExact(subtotal, SERVICE_FEE_PERCENT) + 50) / 100;
+        long total = subtotal + serviceFee;
+        return new PriceCalculationDto(nights, MinorUnits.toDecimal(nightlyPrice),
+                MinorUnits.toDecimal(subtotal), MinorUnits.toDecimal(serviceFee), MinorUnits.toDecimal(total));
+    }
+
+    private static long nights(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Укажите даты бронирования");
+        }
+        if (!endDate.isAfter(startDate)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата выезда должна быть позже даты заезда");
+        }
+        return ChronoUnit.DAYS.between(startDate, endDate);
+    }
+}
@@ -0,0 +1,122 @@
+package com.max.rental.services;
+
+import com.max.rental.dto.listing.PriceRuleDto;
+import com.max.rental.mapping.PriceRuleMapper;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.entities.PriceRule;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.repositories.PriceRuleRepository;
+import com.max.rental.search.IndexedListing;
+import com.max.rental.search.ListingSearchCache;
+import com.max.rental.search.PriceCalendar;
+import com.max.rental.security.CurrentUserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Правила цен объявлений владельца. После изменения правил цены объявления
+ * перекомпилируются в {@link PriceCalendar}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PricingService {
+
+    private static final int MAX_RULES_PER_LISTING = 50;
+
+    private final PriceRuleRepository priceRuleRepository;
+    private final ListingRepository listingRepository;
+    private final CurrentUserService currentUserService;
+    private final PriceCalendar priceCalendar;
+    private final ListingSearchCache listingSearchCache;
+    private final PriceRuleMapper priceRuleMapper;
+
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
+    public List<PriceRuleDto> getRules(Long listingId) {
+        findOwnListing(listingId);
+        return priceRuleRepository.findByListingIdOrderByIdAsc(listingId).stream()
+                .map(priceRuleMapper::map)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
+    public void addRule(Long listingId, PriceRuleDto dto) {
+        Listing listing = findOwnListing(listingId);
+        validate(dto);
+        if (priceRuleRepository.findByListingIdOrderByIdAsc(listingId).size() >= MAX_RULES_PER_LISTING) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Не больше " + MAX_RULES_PER_LISTING + " правил у одного объявления");
+        }
+
+        PriceRule rule = new PriceRule();
+        rule.setListing(listing);
+        rule.setStartDate(dto.getStartDate());
+        rule.setEndDate(dto.getEndDate());
+        rule.setDaysOfWeek(toMask(dto.getDaysOfWeek()));
+        rule.setPricePerNight(dto.getPricePerNight());
+        priceRuleRepository.save(rule);
+
+        log.info("Добавлено правило цены {} для объявления {}", rule.getId(), listingId);
+        onRulesChanged(listing);
+    }
+
+    @Transactional
+    @PreAuthorize("hasAnyRole('OWNER', 'ADMIN')")
+    public void deleteRule(Long listingId, Long ruleId) {
+        Listing listing = findOwnListing(listingId);
+        PriceRule rule = priceRuleRepository.findByIdAndListingId(ruleId, listingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Правило не найдено"));
+        priceRuleRepository.delete(rule);
+
+        log.info("Удалено правило цены {} объявления {}", ruleId, listingId);
+        onRulesChanged(listing);
+    }
+
+    private void onRulesChanged(Listing listing) {
+        priceCalendar.onPricingChanged(listing.getId());
+        listingSearchCache.onPricingChanged(IndexedListing.from(listing));
+    }
+
+    private Listing findOwnListing(Long listingId) {
+        Long ownerId = currentUserService.getCurrentUserId();
+        return listingRepository.findByIdAndOwnerId(listingId, ownerId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Объявление не найдено"));
+    }
+
+    private void validate(PriceRuleDto dto) {
+        if (dto.getPricePerNight() == null || dto.getPricePerNight().compareTo(BigDecimal.ZERO) <= 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Цена должна быть больше 0");
+        if (dto.getPricePerNight().stripTrailingZeros().scale() > 2)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Цена указывается с точностью до копейки");
+        if (dto.getStartDate() != null && dto.getEndDate() != null && dto.getEndDate().isBefore(dto.getStartDate()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Дата окончания раньше даты начала");
+        boolean hasDates = dto.getStartDate() != null || dto.getEndDate() != null;
+        boolean hasDays = dto.getDaysOfWeek() != null && !dto.getDaysOfWeek().isEmpty();
+        if (!hasDates && !hasDays)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Укажите период или дни недели");
+    }
+
+    private static int toMask(List<Integer> daysOfWeek) {
+        int mask = 0;
+        if (daysOfWeek != null) {
+            for (Integer day : daysOfWeek) {
+                if (day == null || day < 1 || day > 7) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неизвестный день недели");
+                }
+                mask |= 1 << (day - 1);
+            }
+        }
+        return mask;
+    }
+}
@@ -1,24 +1,21 @@
 package com.max.rental.services;
 
-import com.max.rental.dto.booking.BookingHistoryDto;
+import com.max.rental.cache.ListingDetailsCache;
 import com.max.rental.dto.profile.ProfileDto;
 import com.max.rental.dto.profile.ProfileUpdateDto;
-import com.max.rental.models.entities.Booking;
-import com.max.rental.models.entities.Listing;
+import com.max.rental.mapping.ProfileMapper;
 import com.max.rental.models.entities.User;
 import com.max.rental.repositories.BookingRepository;
 import com.max.rental.repositories.FavoriteRepository;
+import com.max.rental.repositories.ListingRepository;
 import com.max.rental.repositories.UserRepository;
+import com.max.rental.security.AppUserCache;
 import com.max.rental.security.CurrentUserService;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @Service
 public class ProfileService {
 
@@ -27,19 +24,28 @@ public class ProfileService {
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final FavoriteRepository favoriteRepository;
+    private final ListingRepository listingRepository;
     private final CurrentUserService currentUserService;
-    private final ModelMapper modelMapper;
+    private final ListingDetailsCache listingDetailsCache;
+    private final AppUserCache appUserCache;
+    private final ProfileMapper profileMapper;
 
     public ProfileService(UserRepository userRepository,
                           BookingRepository bookingRepository,
                           FavoriteRepository favoriteRepository,
+                          ListingRepository listingRepository,
                           CurrentUserService currentUserService,
-                          ModelMapper modelMapper) {
+                          ListingDetailsCache listingDetailsCache,
+                          AppUserCache appUserCache,
+                          ProfileMapper profileMapper) {
         this.userRepository = userRepository;
         this.bookingRepository = bookingRepository;
         this.favoriteRepository = favoriteRepository;
+        this.listingRepository = listingRepository;
         this.currentUserService = currentUserService;
-        this.modelMapper = modelMapper;
+        this.listingDetailsCache = listingDetailsCache;
+        this.appUserCache = appUserCache;
+        this.profileMapper = profileMapper;
     }
 
     @Transactional(readOnly = true)
@@ -66,42 +72,21 @@ public class ProfileService {
         }
 
         User savedUser = userRepository.save(user);
+        appUserCache.evict(savedUser.getEmail());
+        if (savedUser.isOwner()) {
+            // Имя владельца входит в закэшированные страницы его объявлений
+            listingDetailsCache.invalidateAll(listingRepository.findIdsByOwnerId(savedUser.getId()));
+        }
         return mapToProfileDto(savedUser);
     }
 
 
-    @Transactional(readOnly = true)
-    public List<BookingHistoryDto> getBookingHistory() {
-        Long currentUserId = currentUserService.getCurrentUserId();
-        List<Booking> bookings = bookingRepository.findAllByRenterId(currentUserId);
-
-        return bookings.stream()
-                .map(this::mapToBookingHistoryDto)
-                .collect(Collectors.toList());
-    }
-
     private ProfileDto mapToProfileDto(User user) {
-        ProfileDto dto = modelMapper.map(user, ProfileDto.class);
-
-        String role = user.getRoles().isEmpty() ? "GUEST" :
-                user.getRoles().get(0).getName().name();
-        dto.setRole(role);
+        ProfileDto dto = profileMapper.map(user);
 
-        dto.setTotalBookings(bookingRepository.findAllByRenterId(user.getId()).size());
+        dto.setTotalBookings(bookingRepository.countByRenterId(user.getId()));
         dto.setFavoritesCount(favoriteRepository.countByRenterId(user.getId()));
 
         return dto;
     }
-
-    private BookingHistoryDto mapToBookingHistoryDto(Booking booking) {
-        BookingHistoryDto dto = modelMapper.map(booking, BookingHistoryDto.class);
-
-        Listing listing = booking.getListing();
-        dto.setListingTitle(listing.getTitle());
-        if (listing.getAddress() != null) {
-            dto.setCity(listing.getAddress().getCity());
-        }
-
-        return dto;
-    }
 }
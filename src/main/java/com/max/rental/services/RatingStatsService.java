@@ -0,0 +1,144 @@
+package com.max.rental.services;
+
+import com.max.rental.cache.ListingDetailsCache;
+import com.max.rental.cache.OwnerDashboardCache;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.repositories.UserRepository;
+import com.max.rental.search.IndexedListing;
+import com.max.rental.search.ListingSearchCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Накопленные оценки объявлений и владельцев. Отзыв меняет счётчики атомарным
+ * UPDATE в своей транзакции, без чтения всех отзывов; фоновая сверка пересчитывает
+ * их по таблице reviews диапазонами id параллельно.
+ */
+@Slf4j
+@Service
+public class RatingStatsService {
+
+    private final ListingRepository listingRepository;
+    private final UserRepository userRepository;
+    private final ListingSearchCache listingSearchCache;
+    private final ListingDetailsCache listingDetailsCache;
+    private final OwnerDashboardCache ownerDashboardCache;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+    private final ExecutorService executor;
+
+    public RatingStatsService(ListingRepository listingRepository,
+                              UserRepository userRepository,
+                              ListingSearchCache listingSearchCache,
+                              ListingDetailsCache listingDetailsCache,
+                              OwnerDashboardCache ownerDashboardCache,
+                              MeterRegistry meterRegistry,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.ratings.reconcile.chunk-size:1000}") int chunkSize,
+                              @Value("${app.ratings.reconcile.parallelism:4}") int parallelism) {
+        this.listingRepository = listingRepository;
+        this.userRepository = userRepository;
+        this.listingSearchCache = listingSearchCache;
+        this.listingDetailsCache = listingDetailsCache;
+        this.ownerDashboardCache = ownerDashboardCache;
+        this.meterRegistry = meterRegistry;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Учитывает добавленный ({@code delta} = 1) или удалённый ({@code delta} = -1) отзыв.
+     * Строки блокируются в порядке объявление, затем владелец - как и при сверке.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewChanged(Listing listing, int rating, int delta) {
+        listingRepository.addRating(listing.getId(), rating, delta);
+        Long ownerId = listing.getOwner().getId();
+        userRepository.addOwnerRating(ownerId, rating, delta);
+
+        listingSearchCache.evictSummary(listing.getId());
+        listingSearchCache.onRatingChanged(IndexedListing.from(listing));
+        // Рейтинг владельца показывается на страницах всех его объявлений
+        listingDetailsCache.invalidateAll(listingRepository.findIdsByOwnerId(ownerId));
+        ownerDashboardCache.invalidate(ownerId);
+    }
+
+    /**
+     * Пересчитывает счётчики по отзывам и исправляет расходящиеся строки.
+     * Запускается при старте (демо-данные пишутся в обход сервисов) и раз в сутки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.ratings.reconcile-cron:0 45 3 * * *}")
+    public void reconcile() {
+        int listings = repair("listings", listingRepository.findAllIdsOrderById(), (from, to) -> {
+            listingRepository.lockIdRange(from, to);
+            return listingRepository.repairRatingStats(from, to);
+        });
+        int owners = repair("users", userRepository.findAllIdsOrderById(), (from, to) -> {
+            userRepository.lockIdRange(from, to);
+            return userRepository.repairOwnerRatingStats(from, to);
+        });
+
+        if (listings + owners > 0) {
+            log.info("Сверка рейтингов: исправлено объявлений {}, владельцев {}", listings, owners);
+        } else {
+            log.debug("Сверка рейтингов: расхождений нет");
+        }
+    }
+
+    /**
+     * Каждый диапазон - отдельная короткая транзакция: сначала блокируются строки
+     * диапазона, затем агрегаты читаются уже после всех отзывов, успевших их обновить.
+     */
+    private int repair(String table, List<Long> ids, LongBinaryOperator chunk) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            long from = ids.get(i);
+            long to = ids.get(Math.min(i + chunkSize, ids.size()) - 1);
+            futures.add(CompletableFuture.supplyAsync(() -> repairChunk(table, from, to, chunk), executor));
+        }
+
+        long repaired = 0;
+        for (CompletableFuture<Long> future : futures) {
+            repaired += future.join();
+        }
+        meterRegistry.counter("ratings.reconcile.repaired", "table", table).increment(repaired);
+        return (int) repaired;
+    }
+
+    private long repairChunk(String table, long from, long to, LongBinaryOperator chunk) {
+        try {
+            Long repaired = transaction.execute(status -> chunk.applyAsLong(from, to));
+            return repaired != null ? repaired : 0;
+        } catch (RuntimeException e) {
+            // Остальные диапазоны сверяются независимо, этот - при следующем запуске
+            log.warn("Не удалось сверить рейтинги {} в диапазоне {}-{}: {}", table, from, to, e.getMessage());
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
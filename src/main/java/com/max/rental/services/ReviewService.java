@@ -1,5 +1,8 @@
 package com.max.rental.services;
 
+import com.max.rental.dto.CursorPageDto;
+import com.max.rental.dto.review.ReviewDto;
+import com.max.rental.mapping.ReviewMapper;
 import com.max.rental.models.entities.Booking;
 import com.max.rental.models.entities.Listing;
 import com.max.rental.models.entities.Review;
@@ -8,24 +11,34 @@ import com.max.rental.models.enums.EnumBookingStatus;
 import com.max.rental.repositories.BookingRepository;
 import com.max.rental.repositories.ReviewRepository;
 import com.max.rental.security.CurrentUserService;
+import com.max.rental.services.support.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReviewService {
 
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 50;
+
     private final ReviewRepository reviewRepository;
     private final BookingRepository bookingRepository;
     private final CurrentUserService currentUserService;
+    private final RatingStatsService ratingStatsService;
+    private final ReviewMapper reviewMapper;
 
     @Transactional(readOnly = true)
     public List<Review> getAllReviews() {
@@ -47,10 +60,45 @@ public class ReviewService {
         return reviewRepository.findByListingIdOrderByCreatedAtDesc(listingId);
     }
 
+    /**
+     * Страница отзывов объявления от новых к старым. Курсор - createdAt и id
+     * последнего отзыва предыдущей страницы; некорректный курсор даёт первую страницу.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<ReviewDto> getListingReviewsPage(Long listingId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        KeysetCursor after = KeysetCursor.decode(cursor).orElse(null);
+
+        LocalDateTime afterCreatedAt = null;
+        if (after != null) {
+            try {
+                afterCreatedAt = LocalDateTime.parse(after.sortKey());
+            } catch (DateTimeParseException | NullPointerException e) {
+                log.debug("Курсор отзывов '{}' некорректен, возвращаем первую страницу", cursor);
+                after = null;
+            }
+        }
+
+        List<Review> reviews = reviewRepository.findPageByListingId(listingId, afterCreatedAt,
+                after != null ? after.id() : null, PageRequest.of(0, pageSize + 1));
+
+        boolean hasNext = reviews.size() > pageSize;
+        List<Review> page = hasNext ? reviews.subList(0, pageSize) : reviews;
+
+        String nextCursor = null;
+        if (hasNext) {
+            Review last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt().toString(), last.getId()).encode();
+        }
+
+        List<ReviewDto> items = page.stream().map(reviewMapper::map).collect(Collectors.toList());
+        return new CursorPageDto<>(items, nextCursor);
+    }
+
     @Transactional
     public Review createReview(Long bookingId, Integer rating, String comment) {
-        User currentUser = currentUserService.getCurrentUser();
-        Long currentUserId = currentUser.getId();
+        Long currentUserId = currentUserService.getCurrentUserId();
+        User currentUser = currentUserService.getCurrentUserReference();
 
         log.info("Пользователь {} создает отзыв для бронирования {}", currentUserId, bookingId);
 
@@ -87,23 +135,11 @@ public class ReviewService {
         Review savedReview = reviewRepository.save(review);
         log.info("Отзыв {} создан для бронирования {}", savedReview.getId(), bookingId);
 
-        updateListingAverageRating(booking.getListing());
+        ratingStatsService.onReviewChanged(booking.getListing(), rating, 1);
 
         return savedReview;
     }
 
-    private void updateListingAverageRating(Listing listing) {
-        List<Review> reviews = reviewRepository.findByListingIdOrderByCreatedAtDesc(listing.getId());
-        if (!reviews.isEmpty()) {
-            double averageRating = reviews.stream()
-                    .mapToInt(Review::getRating)
-                    .average()
-                    .orElse(0.0);
-            listing.setAverageRating(averageRating);
-        }
-    }
-
-
     @Transactional(readOnly = true)
     public List<Booking> getCompletedBookingsWithoutReviews() {
         Long currentUserId = currentUserService.getCurrentUserId();
@@ -121,11 +157,11 @@ public class ReviewService {
 
     @Transactional
     public void deleteReview(Long reviewId) {
-        User currentUser = currentUserService.getCurrentUser();
+        Long currentUserId = currentUserService.getCurrentUserId();
 
-        log.info("Пользователь {} пытается удалить отзыв {}", currentUser.getId(), reviewId);
+        log.info("Пользователь {} пытается удалить отзыв {}", currentUserId, reviewId);
 
-        if (!currentUser.isAdmin()) {
+        if (!currentUserService.isCurrentUserAdmin()) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Только администратор может удалять отзывы");
         }
 
@@ -135,8 +171,8 @@ public class ReviewService {
         Listing listing = review.getListing();
 
         reviewRepository.delete(review);
-        log.info("Отзыв {} удален администратором {}", reviewId, currentUser.getId());
+        log.info("Отзыв {} удален администратором {}", reviewId, currentUserId);
 
-        updateListingAverageRating(listing);
+        ratingStatsService.onReviewChanged(listing, review.getRating(), -1);
     }
 }
@@ -0,0 +1,37 @@
+package com.max.rental.services.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: значение ключа сортировки и id последней
+ * строки страницы, упакованные в URL-safe Base64.
+ */
+public record KeysetCursor(String sortKey, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = (sortKey != null ? sortKey : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Optional<KeysetCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            String sortKey = raw.substring(0, separator);
+            Long id = Long.parseLong(raw.substring(separator + 1));
+            return Optional.of(new KeysetCursor(sortKey.isEmpty() ? null : sortKey, id));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
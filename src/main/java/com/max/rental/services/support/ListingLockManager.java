@@ -0,0 +1,157 @@
+package com.max.rental.services.support;
+
+import com.max.rental.repositories.ListingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Блокировка объявления на время транзакции бронирования. Внутри узла - полосатые
+ * ReentrantLock (объявления с одинаковой полосой блокируют друг друга), между узлами -
+ * pg_try_advisory_xact_lock по id объявления. Обе блокировки держатся до конца транзакции.
+ * Если за {@code app.booking.lock.max-wait-ms} взять блокировку не удалось,
+ * запрос сразу получает 503 вместо ожидания в очереди.
+ * <p>
+ * Счётчик конкуренции в метриках общий, без тега объявления; самые «горячие»
+ * объявления раз в интервал пишутся в лог.
+ */
+@Slf4j
+@Component
+public class ListingLockManager {
+
+    private static final long ADVISORY_POLL_MS = 20;
+    private static final int HOT_LISTINGS_LOGGED = 10;
+
+    private final ListingRepository listingRepository;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock[] stripes;
+    private final long maxWaitNanos;
+    private final Map<Long, LongAdder> contentionByListing = new ConcurrentHashMap<>();
+
+    public ListingLockManager(ListingRepository listingRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.booking.lock.stripes:64}") int stripeCount,
+                              @Value("${app.booking.lock.max-wait-ms:2000}") long maxWaitMillis) {
+        this.listingRepository = listingRepository;
+        this.meterRegistry = meterRegistry;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * Берёт блокировку объявления до завершения текущей транзакции.
+     * Должен вызываться внутри транзакции.
+     */
+    public void lock(Long listingId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Блокировка объявления возможна только внутри транзакции");
+        }
+
+        long started = System.nanoTime();
+        long deadline = started + maxWaitNanos;
+        ReentrantLock stripe = stripes[Math.floorMod(Long.hashCode(listingId), stripes.length)];
+
+        boolean contended = false;
+        if (!stripe.tryLock()) {
+            contended = true;
+            if (!tryLock(stripe, deadline)) {
+                fail(listingId, started, contended);
+            }
+        }
+        releaseAfterCompletion(stripe);
+
+        while (!listingRepository.tryAdvisoryXactLock(listingId)) {
+            contended = true;
+            if (System.nanoTime() >= deadline) {
+                fail(listingId, started, contended);
+            }
+            sleep(ADVISORY_POLL_MS);
+        }
+
+        record(listingId, started, contended, "acquired");
+    }
+
+    private static boolean tryLock(ReentrantLock stripe, long deadline) {
+        try {
+            return stripe.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void releaseAfterCompletion(ReentrantLock stripe) {
+        // afterCompletion выполняется в том же потоке, что и транзакция, - владельце блокировки
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+
+    private void fail(Long listingId, long started, boolean contended) {
+        record(listingId, started, contended, "timeout");
+        log.warn("Не удалось заблокировать объявление {} за {} мс", listingId,
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Объявление сейчас бронируют другие пользователи. Попробуйте ещё раз через несколько секунд.");
+    }
+
+    private void record(Long listingId, long started, boolean contended, String outcome) {
+        Timer.builder("listing.lock.wait")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (contended) {
+            meterRegistry.counter("listing.lock.contention", "outcome", outcome).increment();
+            contentionByListing.computeIfAbsent(listingId, id -> new LongAdder()).increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.lock.hot-log-ms:60000}")
+    public void logHotListings() {
+        if (contentionByListing.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> snapshot = new HashMap<>();
+        contentionByListing.keySet().forEach(id -> {
+            LongAdder count = contentionByListing.remove(id);
+            if (count != null) {
+                snapshot.put(id, count.sum());
+            }
+        });
+        String hot = snapshot.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(HOT_LISTINGS_LOGGED)
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(", "));
+        log.info("Конкуренция за блокировки объявлений: {} объявлений, чаще всего: {}", snapshot.size(), hot);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
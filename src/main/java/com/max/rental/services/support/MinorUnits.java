@@ -0,0 +1,21 @@
+package com.max.rental.services.support;
+
+import java.math.BigDecimal;
+
+/**
+ * Перевод денежных сумм в копейки и обратно. Цены хранятся с scale = 2,
+ * поэтому перевод точный; сумма с долями копейки считается ошибкой.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    public static long of(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long amount) {
+        return BigDecimal.valueOf(amount, 2);
+    }
+}
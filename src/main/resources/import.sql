@@ -0,0 +1,5 @@
+-- Выполняется Hibernate после создания схемы (ddl-auto=create-drop), по одному оператору на строку
+-- Пересечение бронирований одного объявления запрещено на уровне БД: диапазон [start_date, end_date) и GiST-исключение по активным бронированиям
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+ALTER TABLE bookings ADD COLUMN stay daterange GENERATED ALWAYS AS (daterange(start_date, end_date, '[)')) STORED;
+ALTER TABLE bookings ADD CONSTRAINT bookings_no_overlap EXCLUDE USING gist (listing_id WITH =, stay WITH &&) WHERE (status <> 'CANCELLED');
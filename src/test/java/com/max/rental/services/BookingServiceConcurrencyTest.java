@@ -0,0 +1,214 @@
+package com.max.rental.services;
+
+import com.max.rental.dto.booking.BookingRequestDto;
+import com.max.rental.models.entities.Address;
+import com.max.rental.models.entities.Booking;
+import com.max.rental.models.entities.Listing;
+import com.max.rental.models.entities.PropertyType;
+import com.max.rental.models.entities.User;
+import com.max.rental.models.enums.EnumBookingStatus;
+import com.max.rental.models.enums.EnumListingStatus;
+import com.max.rental.models.enums.EnumPropertyType;
+import com.max.rental.repositories.BookingRepository;
+import com.max.rental.repositories.ListingRepository;
+import com.max.rental.repositories.PropertyTypeRepository;
+import com.max.rental.repositories.UserRepository;
+import com.max.rental.security.AppUserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Параллельные бронирования одних и тех же дат на настоящем Postgres: ровно одно
+ * проходит, остальные получают 409, а ограничение bookings_no_overlap срабатывает
+ * и тогда, когда календарь занятости о конфликте не знает.
+ */
+@SpringBootTest(properties = "app.booking.lock.max-wait-ms=30000")
+@ActiveProfiles("test")
+@Testcontainers
+class BookingServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PropertyTypeRepository propertyTypeRepository;
+
+    @Test
+    void onlyOneOfConcurrentBookingsForSameDatesWins() throws Exception {
+        Listing listing = createListing();
+        LocalDate start = LocalDate.now().plusDays(10);
+        LocalDate end = start.plusDays(3);
+        List<User> renters = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            renters.add(createUser());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<HttpStatus>> results = new ArrayList<>();
+        try {
+            for (User renter : renters) {
+                results.add(executor.submit(() -> {
+                    startSignal.await();
+                    return book(renter, listing.getId(), start, end);
+                }));
+            }
+            startSignal.countDown();
+
+            int created = 0;
+            int conflicts = 0;
+            for (Future<HttpStatus> result : results) {
+                HttpStatus status = result.get(60, TimeUnit.SECONDS);
+                if (status == HttpStatus.CREATED) {
+                    created++;
+                } else if (status == HttpStatus.CONFLICT) {
+                    conflicts++;
+                }
+            }
+
+            assertThat(created).isEqualTo(1);
+            assertThat(conflicts).isEqualTo(THREADS - 1);
+            assertThat(bookingRepository.countByListingIdAndStatus(listing.getId(), EnumBookingStatus.CONFIRMED))
+                    .isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void overlapMissedByCalendarIsRejectedByConstraint() {
+        Listing listing = createListing();
+        LocalDate start = LocalDate.now().plusDays(20);
+        LocalDate end = start.plusDays(4);
+
+        // Запись в обход сервиса: календарь о ней не узнаёт, остаётся только ограничение в БД
+        Booking existing = new Booking();
+        existing.setListing(listing);
+        existing.setRenter(createUser());
+        existing.setStartDate(start);
+        existing.setEndDate(end);
+        existing.setTotalPrice(new BigDecimal("4000.00"));
+        existing.setStatus(EnumBookingStatus.CONFIRMED);
+        bookingRepository.saveAndFlush(existing);
+
+        User renter = createUser();
+        assertThatThrownBy(() -> {
+            authenticate(renter);
+            try {
+                bookingService.createBooking(request(listing.getId(), start.plusDays(1), end.plusDays(1)));
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        })
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(bookingRepository.countByListingIdAndStatus(listing.getId(), EnumBookingStatus.CONFIRMED))
+                .isEqualTo(1);
+    }
+
+    private HttpStatus book(User renter, Long listingId, LocalDate start, LocalDate end) {
+        authenticate(renter);
+        try {
+            bookingService.createBooking(request(listingId, start, end));
+            return HttpStatus.CREATED;
+        } catch (ResponseStatusException e) {
+            return HttpStatus.valueOf(e.getStatusCode().value());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static void authenticate(User user) {
+        AppUserPrincipal principal = new AppUserPrincipal(user.getId(), user.getEmail(), user.getPasswordHash(),
+                List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private static BookingRequestDto request(Long listingId, LocalDate start, LocalDate end) {
+        BookingRequestDto dto = new BookingRequestDto();
+        dto.setListingId(listingId);
+        dto.setStartDate(start);
+        dto.setEndDate(end);
+        return dto;
+    }
+
+    private Listing createListing() {
+        PropertyType type = propertyTypeRepository.findByType(EnumPropertyType.APARTMENT.getCode())
+                .orElseGet(() -> {
+                    PropertyType created = new PropertyType();
+                    created.setType(EnumPropertyType.APARTMENT.getCode());
+                    return propertyTypeRepository.save(created);
+                });
+
+        Address address = new Address();
+        address.setCity("Москва");
+        address.setDistrict("Центральный");
+
+        Listing listing = new Listing();
+        listing.setOwner(createUser());
+        listing.setPropertyType(type);
+        listing.setAddress(address);
+        listing.setTitle("Студия для теста");
+        listing.setDescription("Объявление для проверки параллельных бронирований");
+        listing.setPricePerNight(new BigDecimal("1000.00"));
+        listing.setRoomCount(1);
+        listing.setStatus(EnumListingStatus.ACTIVE);
+        listing.setCreatedAt(LocalDateTime.now());
+        return listingRepository.save(listing);
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setEmail(UUID.randomUUID() + "@test.ru");
+        user.setPasswordHash("{noop}password");
+        user.setFirstName("Тест");
+        user.setLastName("Тестов");
+        return userRepository.save(user);
+    }
+}